@@ -0,0 +1,163 @@
+/*
+ * Copyright 2021 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.token.irc2;
+
+import com.iconloop.score.util.SortedIndex;
+import score.Address;
+import score.Context;
+import score.DictDB;
+import score.VarDB;
+import scorex.util.HashMap;
+
+import java.math.BigInteger;
+
+/**
+ * A write-back cache of the balances and the total supply, which lives for a single invocation.
+ * Each slot is read at most once, and only the slots whose value has changed are written back on {@link #flush()}.
+ * An instance must not be kept across invocations.
+ */
+class BalanceLedger {
+    private final DictDB<Address, BigInteger> balances;
+    private final VarDB<BigInteger> totalSupply;
+    // (balance, holder) keys of the non-zero balances (null if not maintained)
+    private final SortedIndex ranking;
+    private final HashMap<Address, Slot> slots = new HashMap<>();
+    private Slot supply;
+
+    BalanceLedger(DictDB<Address, BigInteger> balances, VarDB<BigInteger> totalSupply) {
+        this(balances, totalSupply, null);
+    }
+
+    BalanceLedger(DictDB<Address, BigInteger> balances, VarDB<BigInteger> totalSupply, SortedIndex ranking) {
+        this.balances = balances;
+        this.totalSupply = totalSupply;
+        this.ranking = ranking;
+    }
+
+    private static final int ADDRESS_BITS = Address.LENGTH * 8;
+    private static final BigInteger ADDRESS_MASK = BigInteger.ONE.shiftLeft(ADDRESS_BITS).subtract(BigInteger.ONE);
+
+    /**
+     * Returns the ranking key of `owner`, which orders the holders by balance and then by address.
+     */
+    static BigInteger rankKey(Address owner, BigInteger balance) {
+        return balance.shiftLeft(ADDRESS_BITS).or(new BigInteger(1, owner.toByteArray()));
+    }
+
+    /**
+     * Returns the holder encoded in the ranking key.
+     */
+    static Address holderOf(BigInteger rankKey) {
+        byte[] raw = rankKey.and(ADDRESS_MASK).toByteArray();
+        byte[] bytes = new byte[Address.LENGTH];
+        int length = Math.min(raw.length, Address.LENGTH);
+        System.arraycopy(raw, raw.length - length, bytes, Address.LENGTH - length, length);
+        return new Address(bytes);
+    }
+
+    private static class Slot {
+        private final BigInteger original;
+        private BigInteger current;
+
+        Slot(BigInteger value) {
+            this.original = value;
+            this.current = value;
+        }
+
+        boolean isDirty() {
+            return !current.equals(original);
+        }
+    }
+
+    private Slot slotOf(Address owner) {
+        Slot slot = slots.get(owner);
+        if (slot == null) {
+            slot = new Slot(balances.getOrDefault(owner, BigInteger.ZERO));
+            slots.put(owner, slot);
+        }
+        return slot;
+    }
+
+    private Slot supplySlot() {
+        if (supply == null) {
+            supply = new Slot(totalSupply.getOrDefault(BigInteger.ZERO));
+        }
+        return supply;
+    }
+
+    BigInteger balanceOf(Address owner) {
+        return slotOf(owner).current;
+    }
+
+    BigInteger totalSupply() {
+        return supplySlot().current;
+    }
+
+    /**
+     * Adds `amount` to the staged balance of `owner`.
+     */
+    void credit(Address owner, BigInteger amount) {
+        Slot slot = slotOf(owner);
+        slot.current = slot.current.add(amount);
+    }
+
+    /**
+     * Subtracts `amount` from the staged balance of `owner`, reverting if the balance is not enough.
+     */
+    void debit(Address owner, BigInteger amount) {
+        Slot slot = slotOf(owner);
+        Context.require(slot.current.compareTo(amount) >= 0, "Insufficient balance");
+        slot.current = slot.current.subtract(amount);
+    }
+
+    void increaseSupply(BigInteger amount) {
+        Slot slot = supplySlot();
+        slot.current = slot.current.add(amount);
+    }
+
+    void decreaseSupply(BigInteger amount) {
+        Slot slot = supplySlot();
+        slot.current = slot.current.subtract(amount);
+    }
+
+    /**
+     * Writes back the changed slots, each of them exactly once.
+     */
+    void flush() {
+        for (var entry : slots.entrySet()) {
+            Slot slot = entry.getValue();
+            if (slot.isDirty()) {
+                balances.set(entry.getKey(), slot.current);
+                if (ranking != null) {
+                    rerank(entry.getKey(), slot);
+                }
+            }
+        }
+        if (supply != null && supply.isDirty()) {
+            totalSupply.set(supply.current);
+        }
+    }
+
+    private void rerank(Address owner, Slot slot) {
+        if (slot.original.signum() > 0) {
+            ranking.remove(rankKey(owner, slot.original));
+        }
+        if (slot.current.signum() > 0) {
+            ranking.add(rankKey(owner, slot.current));
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package com.iconloop.score.token.irc2;
 
+import com.iconloop.score.util.SortedIndex;
 import score.Address;
 import score.Context;
 import score.DictDB;
@@ -25,6 +26,7 @@ import score.annotation.External;
 import score.annotation.Optional;
 
 import java.math.BigInteger;
+import java.util.List;
 
 public abstract class IRC2Basic implements IRC2 {
     protected static final Address ZERO_ADDRESS = new Address(new byte[Address.LENGTH]);
@@ -33,6 +35,7 @@ public abstract class IRC2Basic implements IRC2 {
     private final VarDB<BigInteger> decimals = Context.newVarDB("decimals", BigInteger.class);
     private final VarDB<BigInteger> totalSupply = Context.newVarDB("total_supply", BigInteger.class);
     private final DictDB<Address, BigInteger> balances = Context.newDictDB("balances", BigInteger.class);
+    private final SortedIndex holderRanking = new SortedIndex("holder_ranking", _sortedIndexOrder());
 
     public IRC2Basic(String _name, String _symbol, int _decimals) {
         // initialize values only at first deployment
@@ -78,8 +81,47 @@ public abstract class IRC2Basic implements IRC2 {
         return balances.getOrDefault(_owner, BigInteger.ZERO);
     }
 
-    private void safeSetBalance(Address owner, BigInteger amount) {
-        balances.set(owner, amount);
+    /**
+     * (Extension) Returns up to {@code _limit} holders in descending order of their balances.
+     * Holders with the same balance are ordered by address.
+     * Available only if the holder ranking is enabled.
+     *
+     * @param _limit The maximum number of holders to return
+     * @return The list of addresses with a non-zero balance
+     */
+    @External(readonly=true)
+    public Address[] topHolders(int _limit) {
+        Context.require(_holderRankingEnabled(), "Holder ranking is not enabled");
+        List<BigInteger> keys = holderRanking.descending(null, null, _limit);
+        Address[] holders = new Address[keys.size()];
+        for (int i = 0; i < holders.length; i++) {
+            holders[i] = BalanceLedger.holderOf(keys.get(i));
+        }
+        return holders;
+    }
+
+    /**
+     * Returns true if the holders are kept sorted by balance on-chain, which enables {@link #topHolders(int)}.
+     * It costs a few extra storage accesses per changed balance, and must not change once tokens have been minted.
+     */
+    protected boolean _holderRankingEnabled() {
+        return false;
+    }
+
+    /**
+     * Returns the maximum number of holders per node of the holder ranking.
+     * A wider node means fewer reads per lookup but a larger write per update.
+     * It must not change once tokens have been minted.
+     */
+    protected int _sortedIndexOrder() {
+        return SortedIndex.DEFAULT_ORDER;
+    }
+
+    /**
+     * Returns a new ledger staging balance and supply updates for the current invocation.
+     */
+    BalanceLedger newLedger() {
+        return new BalanceLedger(balances, totalSupply, _holderRankingEnabled() ? holderRanking : null);
     }
 
     @External
@@ -88,11 +130,12 @@ public abstract class IRC2Basic implements IRC2 {
 
         // check some basic requirements
         Context.require(_value.compareTo(BigInteger.ZERO) >= 0, "_value needs to be positive");
-        Context.require(balanceOf(_from).compareTo(_value) >= 0, "Insufficient balance");
 
         // adjust the balances
-        safeSetBalance(_from, balanceOf(_from).subtract(_value));
-        safeSetBalance(_to, balanceOf(_to).add(_value));
+        BalanceLedger ledger = newLedger();
+        ledger.debit(_from, _value);
+        ledger.credit(_to, _value);
+        ledger.flush();
 
         // emit Transfer event first
         byte[] dataBytes = (_data == null) ? new byte[0] : _data;
@@ -103,6 +146,41 @@ public abstract class IRC2Basic implements IRC2 {
         }
     }
 
+    /**
+     * (Extension) Transfers {@code _values} amount of tokens to each address of {@code _to} respectively,
+     * and fires the {@code Transfer} event for each recipient.
+     * The caller balance is debited once for the sum of {@code _values}, and the whole batch fails
+     * if the sum exceeds the balance. {@code tokenFallback} is invoked for each contract recipient.
+     */
+    @External
+    public void transferBatch(Address[] _to, BigInteger[] _values, @Optional byte[] _data) {
+        Address _from = Context.getCaller();
+
+        // check some basic requirements
+        Context.require(_to.length == _values.length, "_to/_values pairs mismatch");
+        BigInteger total = BigInteger.ZERO;
+        for (BigInteger value : _values) {
+            Context.require(value.compareTo(BigInteger.ZERO) >= 0, "_value needs to be positive");
+            total = total.add(value);
+        }
+
+        // adjust the balances
+        BalanceLedger ledger = newLedger();
+        ledger.debit(_from, total);
+        for (int i = 0; i < _to.length; i++) {
+            ledger.credit(_to[i], _values[i]);
+        }
+        ledger.flush();
+
+        byte[] dataBytes = (_data == null) ? new byte[0] : _data;
+        for (int i = 0; i < _to.length; i++) {
+            Transfer(_from, _to[i], _values[i], dataBytes);
+            if (_to[i].isContract()) {
+                Context.call(_to[i], "tokenFallback", _from, _values[i], dataBytes);
+            }
+        }
+    }
+
     /**
      * Creates `amount` tokens and assigns them to `owner`, increasing the total supply.
      */
@@ -110,21 +188,47 @@ public abstract class IRC2Basic implements IRC2 {
         Context.require(!ZERO_ADDRESS.equals(owner), "Owner address cannot be zero address");
         Context.require(amount.compareTo(BigInteger.ZERO) >= 0, "amount needs to be positive");
 
-        totalSupply.set(totalSupply().add(amount));
-        safeSetBalance(owner, balanceOf(owner).add(amount));
+        BalanceLedger ledger = newLedger();
+        ledger.increaseSupply(amount);
+        ledger.credit(owner, amount);
+        ledger.flush();
         Transfer(ZERO_ADDRESS, owner, amount, "mint".getBytes());
     }
 
+    /**
+     * Creates `amounts` tokens and assigns them to `owners` respectively, increasing the total supply once.
+     */
+    protected void _mintBatch(Address[] owners, BigInteger[] amounts) {
+        Context.require(owners.length == amounts.length, "owner/amount pairs mismatch");
+
+        BalanceLedger ledger = newLedger();
+        BigInteger total = BigInteger.ZERO;
+        for (int i = 0; i < owners.length; i++) {
+            Context.require(!ZERO_ADDRESS.equals(owners[i]), "Owner address cannot be zero address");
+            Context.require(amounts[i].compareTo(BigInteger.ZERO) >= 0, "amount needs to be positive");
+            ledger.credit(owners[i], amounts[i]);
+            total = total.add(amounts[i]);
+        }
+        ledger.increaseSupply(total);
+        ledger.flush();
+
+        byte[] mintBytes = "mint".getBytes();
+        for (int i = 0; i < owners.length; i++) {
+            Transfer(ZERO_ADDRESS, owners[i], amounts[i], mintBytes);
+        }
+    }
+
     /**
      * Destroys `amount` tokens from `owner`, reducing the total supply.
      */
     protected void _burn(Address owner, BigInteger amount) {
         Context.require(!ZERO_ADDRESS.equals(owner), "Owner address cannot be zero address");
         Context.require(amount.compareTo(BigInteger.ZERO) >= 0, "amount needs to be positive");
-        Context.require(balanceOf(owner).compareTo(amount) >= 0, "Insufficient balance");
 
-        safeSetBalance(owner, balanceOf(owner).subtract(amount));
-        totalSupply.set(totalSupply().subtract(amount));
+        BalanceLedger ledger = newLedger();
+        ledger.debit(owner, amount);
+        ledger.decreaseSupply(amount);
+        ledger.flush();
         Transfer(owner, ZERO_ADDRESS, amount, "burn".getBytes());
     }
 
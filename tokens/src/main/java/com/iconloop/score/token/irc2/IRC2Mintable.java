@@ -57,6 +57,17 @@ public abstract class IRC2Mintable extends IRC2Basic {
         _mint(_account, _amount);
     }
 
+    /**
+     * Creates _amounts number of tokens, and assigns to _accounts respectively.
+     * Increases the balance of those accounts and the total supply.
+     */
+    @External
+    public void mintToBatch(Address[] _accounts, BigInteger[] _amounts) {
+        // simple access control - only the minter can mint new token
+        Context.require(Context.getCaller().equals(minter.get()));
+        _mintBatch(_accounts, _amounts);
+    }
+
     @External
     public void setMinter(Address _minter) {
         // simple access control - only the contract owner can set new minter
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2021 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.token.irc3;
+
+import com.iconloop.score.util.TokenURI;
+import score.Address;
+import score.BranchDB;
+import score.Context;
+import score.DictDB;
+import score.VarDB;
+import score.annotation.EventLog;
+import score.annotation.External;
+import scorex.util.HashMap;
+
+import java.math.BigInteger;
+
+/**
+ * A non-enumerable IRC3 implementation which keeps only the owner of each token,
+ * the number of tokens per owner and the token approvals.
+ * Use {@link IRC3Basic} instead if the on-chain enumeration of tokens is required.
+ */
+public abstract class IRC3Base implements IRC3 {
+    protected static final Address ZERO_ADDRESS = new Address(new byte[Address.LENGTH]);
+    private final VarDB<String> name = Context.newVarDB("name", String.class);
+    private final VarDB<String> symbol = Context.newVarDB("symbol", String.class);
+    private final DictDB<BigInteger, Address> owners = Context.newDictDB("token_owner", Address.class);
+    private final DictDB<Address, Integer> balances = Context.newDictDB("balances", Integer.class);
+    private final DictDB<BigInteger, Address> tokenApprovals = Context.newDictDB("approvals", Address.class);
+    // URI template shared by the tokens without their own URI
+    private final VarDB<String> baseURI = Context.newVarDB("base_uri", String.class);
+    // token ID => token URI, overriding the base URI
+    private final DictDB<BigInteger, String> tokenURIs = Context.newDictDB("token_uri", String.class);
+    // owner => (operator => approved)
+    private final BranchDB<Address, DictDB<Address, Boolean>> operatorApproval = Context.newBranchDB("operator_approval", Boolean.class);
+
+    public IRC3Base(String _name, String _symbol) {
+        // initialize values only at first deployment
+        if (this.name.get() == null) {
+            this.name.set(_name);
+            this.symbol.set(_symbol);
+        }
+    }
+
+    @External(readonly=true)
+    public String name() {
+        return name.get();
+    }
+
+    @External(readonly=true)
+    public String symbol() {
+        return symbol.get();
+    }
+
+    @External(readonly=true)
+    public int balanceOf(Address _owner) {
+        Context.require(!ZERO_ADDRESS.equals(_owner), "Owner address cannot be zero address");
+        return _balanceOf(_owner);
+    }
+
+    @External(readonly=true)
+    public Address ownerOf(BigInteger _tokenId) {
+        Address owner = _ownerOf(_tokenId);
+        Context.require(owner != null, "Non-existent token");
+        return owner;
+    }
+
+    /**
+     * (Extension) Returns the owners of {@code _tokenIds}.
+     * The zero address is returned for a token which does not exist.
+     */
+    @External(readonly=true)
+    public Address[] ownersOf(BigInteger[] _tokenIds) {
+        Address[] result = new Address[_tokenIds.length];
+        for (int i = 0; i < _tokenIds.length; i++) {
+            Address owner = _ownerOf(_tokenIds[i]);
+            result[i] = (owner != null) ? owner : ZERO_ADDRESS;
+        }
+        return result;
+    }
+
+    /**
+     * (Extension) Returns the URI of {@code _tokenId}, which is the URI set for the token,
+     * or the base URI with {@code {id}} substituted if there is none.
+     * Throws if {@code _tokenId} is not a valid NFT.
+     */
+    @External(readonly=true)
+    public String tokenURI(BigInteger _tokenId) {
+        Context.require(_tokenExists(_tokenId), "Non-existent token");
+        String uri = tokenURIs.get(_tokenId);
+        return (uri != null) ? uri : TokenURI.expand(baseURI.get(), _tokenId);
+    }
+
+    @External(readonly=true)
+    public Address getApproved(BigInteger _tokenId) {
+        return tokenApprovals.getOrDefault(_tokenId, ZERO_ADDRESS);
+    }
+
+    @External
+    public void approve(Address _to, BigInteger _tokenId) {
+        Address owner = ownerOf(_tokenId);
+        Context.require(!owner.equals(_to), "Cannot approve owner");
+        Context.require(owner.equals(Context.getCaller()), "Only owner can call this method");
+        tokenApprovals.set(_tokenId, ZERO_ADDRESS.equals(_to) ? null : _to);
+        Approval(owner, _to, _tokenId);
+    }
+
+    /**
+     * (Extension) Enables or disables approval for {@code _operator} to transfer all of the caller's tokens,
+     * and fires the {@code ApprovalForAll} event.
+     */
+    @External
+    public void setApprovalForAll(Address _operator, boolean _approved) {
+        Address owner = Context.getCaller();
+        Context.require(!owner.equals(_operator), "Cannot approve owner");
+        operatorApproval.at(owner).set(_operator, _approved ? Boolean.TRUE : null);
+        ApprovalForAll(owner, _operator, _approved);
+    }
+
+    /**
+     * (Extension) Returns true if {@code _operator} is approved to transfer all of {@code _owner}'s tokens.
+     */
+    @External(readonly=true)
+    public boolean isApprovedForAll(Address _owner, Address _operator) {
+        return operatorApproval.at(_owner).getOrDefault(_operator, false);
+    }
+
+    /**
+     * Sets the URI template of the tokens without their own URI.
+     * {@code {id}} in the template is replaced with the token ID in hexadecimal, zero-padded to 64 characters.
+     */
+    protected void _setBaseURI(String uri) {
+        baseURI.set(uri);
+    }
+
+    /**
+     * Sets the URI of `tokenId`, overriding the base URI. A null `uri` removes the override.
+     */
+    protected void _setTokenURI(BigInteger tokenId, String uri) {
+        Context.require(_tokenExists(tokenId), "Non-existent token");
+        tokenURIs.set(tokenId, uri);
+    }
+
+    protected void _clearApproval(Address owner, BigInteger tokenId) {
+        // skip the write if there is nothing to clear
+        if (tokenApprovals.get(tokenId) != null) {
+            tokenApprovals.set(tokenId, null);
+            Approval(owner, ZERO_ADDRESS, tokenId);
+        }
+    }
+
+    @External
+    public void transfer(Address _to, BigInteger _tokenId) {
+        Address owner = ownerOf(_tokenId);
+        Context.require(owner.equals(Context.getCaller()), "Only owner can call this method");
+        _transfer(owner, _to, _tokenId);
+    }
+
+    @External
+    public void transferFrom(Address _from, Address _to, BigInteger _tokenId) {
+        Address owner = ownerOf(_tokenId);
+        Address spender = Context.getCaller();
+        Context.require(owner.equals(spender) || getApproved(_tokenId).equals(spender) || isApprovedForAll(owner, spender),
+                "Spender is not authorized to transfer tokens");
+        Context.require(owner.equals(_from), "from address is not owner");
+        _transfer(owner, _to, _tokenId);
+    }
+
+    private void _transfer(Address from, Address to, BigInteger tokenId) {
+        Context.require(!to.equals(ZERO_ADDRESS), "destination address cannot be zero address");
+        // clear approvals from the previous owner
+        _clearApproval(from, tokenId);
+
+        _updateOwner(tokenId, from, to);
+        Transfer(from, to, tokenId);
+    }
+
+    /**
+     * (Extension) Transfers the ownership of all {@code _tokenIds} of the caller to {@code _to},
+     * and fires the {@code Transfer} event for each token.
+     */
+    @External
+    public void transferBatch(Address _to, BigInteger[] _tokenIds) {
+        Address caller = Context.getCaller();
+        _transferBatch(caller, caller, _to, _tokenIds);
+    }
+
+    /**
+     * (Extension) Transfers the ownership of all {@code _tokenIds} from {@code _from} to {@code _to},
+     * and fires the {@code Transfer} event for each token.
+     * Throws unless the caller is the owner, an approved operator, or the approved address for each token.
+     */
+    @External
+    public void transferFromBatch(Address _from, Address _to, BigInteger[] _tokenIds) {
+        _transferBatch(Context.getCaller(), _from, _to, _tokenIds);
+    }
+
+    private void _transferBatch(Address spender, Address from, Address to, BigInteger[] tokenIds) {
+        Context.require(!to.equals(ZERO_ADDRESS), "destination address cannot be zero address");
+        _requireDistinct(tokenIds);
+
+        // resolved lazily, and only once per batch
+        Boolean isOperator = from.equals(spender) ? Boolean.TRUE : null;
+        // the owner of each token is checked by _updateOwnerBatch
+        for (BigInteger tokenId : tokenIds) {
+            Address approved = tokenApprovals.get(tokenId);
+            if (!spender.equals(approved)) {
+                if (isOperator == null) {
+                    isOperator = isApprovedForAll(from, spender);
+                }
+                Context.require(isOperator, "Spender is not authorized to transfer tokens");
+            }
+            // clear approvals from the previous owner
+            if (approved != null) {
+                tokenApprovals.set(tokenId, null);
+                Approval(from, ZERO_ADDRESS, tokenId);
+            }
+        }
+
+        _updateOwnerBatch(tokenIds, from, to);
+        for (BigInteger tokenId : tokenIds) {
+            Transfer(from, to, tokenId);
+        }
+    }
+
+    private static void _requireDistinct(BigInteger[] tokenIds) {
+        if (tokenIds.length > 1) {
+            var seen = new HashMap<BigInteger, Boolean>();
+            for (BigInteger tokenId : tokenIds) {
+                Context.require(seen.put(tokenId, Boolean.TRUE) == null, "Duplicate token ID");
+            }
+        }
+    }
+
+    /**
+     * Mints `tokenId` and transfers it to `to`.
+     */
+    protected void _mint(Address to, BigInteger tokenId) {
+        Context.require(!ZERO_ADDRESS.equals(to), "Destination address cannot be zero address");
+        Context.require(!_tokenExists(tokenId), "Token already exists");
+
+        _updateOwner(tokenId, null, to);
+        Transfer(ZERO_ADDRESS, to, tokenId);
+    }
+
+    /**
+     * Destroys `tokenId`.
+     */
+    protected void _burn(BigInteger tokenId) {
+        Address owner = ownerOf(tokenId);
+        // clear approvals
+        _clearApproval(owner, tokenId);
+
+        _updateOwner(tokenId, owner, null);
+        Transfer(owner, ZERO_ADDRESS, tokenId);
+    }
+
+    /**
+     * Destroys all of `tokenIds`, which must be owned by `owner`.
+     */
+    protected void _burnBatch(Address owner, BigInteger[] tokenIds) {
+        _requireDistinct(tokenIds);
+        // the owner of each token is checked by _updateOwnerBatch
+        for (BigInteger tokenId : tokenIds) {
+            // clear approvals
+            _clearApproval(owner, tokenId);
+        }
+
+        _updateOwnerBatch(tokenIds, owner, null);
+        for (BigInteger tokenId : tokenIds) {
+            Transfer(owner, ZERO_ADDRESS, tokenId);
+        }
+    }
+
+    protected boolean _tokenExists(BigInteger tokenId) {
+        return _ownerOf(tokenId) != null;
+    }
+
+    /**
+     * Returns the owner of `tokenId`, or null if the token does not exist.
+     */
+    protected Address _ownerOf(BigInteger tokenId) {
+        return owners.get(tokenId);
+    }
+
+    /**
+     * Returns the number of tokens owned by `owner`.
+     */
+    protected int _balanceOf(Address owner) {
+        return balances.getOrDefault(owner, 0);
+    }
+
+    /**
+     * Moves the ownership of `tokenId` from `from` to `to` in the storage.
+     * `from` is null when the token is minted, and `to` is null when the token is burned.
+     */
+    protected void _updateOwner(BigInteger tokenId, Address from, Address to) {
+        if (from != null && from.equals(to)) {
+            return;
+        }
+        if (from != null) {
+            _changeBalance(from, -1);
+        }
+        if (to != null) {
+            _changeBalance(to, 1);
+        }
+        owners.set(tokenId, to);
+    }
+
+    /**
+     * Moves the ownership of all `tokenIds` from `from` to `to` in the storage,
+     * updating the owner bookkeeping once for the whole batch.
+     * `to` is null when the tokens are burned.
+     * Throws unless every token is owned by `from`, which lets an implementation check the owner
+     * with the same storage read it updates the owner with.
+     */
+    protected void _updateOwnerBatch(BigInteger[] tokenIds, Address from, Address to) {
+        for (BigInteger tokenId : tokenIds) {
+            Context.require(from.equals(owners.get(tokenId)), "from address is not owner");
+        }
+        if (from.equals(to)) {
+            return;
+        }
+        for (BigInteger tokenId : tokenIds) {
+            owners.set(tokenId, to);
+        }
+        _changeBalance(from, -tokenIds.length);
+        if (to != null) {
+            _changeBalance(to, tokenIds.length);
+        }
+    }
+
+    /**
+     * Adds `delta` to the number of tokens owned by `owner`.
+     */
+    protected void _changeBalance(Address owner, int delta) {
+        int balance = balances.getOrDefault(owner, 0) + delta;
+        balances.set(owner, (balance > 0) ? balance : null);
+    }
+
+    @EventLog(indexed=3)
+    public void Transfer(Address _from, Address _to, BigInteger _tokenId) {
+    }
+
+    @EventLog(indexed=3)
+    public void Approval(Address _owner, Address _approved, BigInteger _tokenId) {
+    }
+
+    @EventLog(indexed=2)
+    public void ApprovalForAll(Address _owner, Address _operator, boolean _approved) {
+    }
+}
@@ -16,98 +16,33 @@
 
 package com.iconloop.score.token.irc3;
 
+import com.iconloop.score.util.CompactEnumerableMap;
 import com.iconloop.score.util.EnumerableMap;
+import com.iconloop.score.util.EnumerableSetBranch;
 import com.iconloop.score.util.IntSet;
+import com.iconloop.score.util.SortedIndex;
 import score.Address;
 import score.Context;
 import score.DictDB;
-import score.VarDB;
-import score.annotation.EventLog;
 import score.annotation.External;
+import score.annotation.Optional;
 
 import java.math.BigInteger;
+import java.util.List;
 
-public abstract class IRC3Basic implements IRC3 {
-    protected static final Address ZERO_ADDRESS = new Address(new byte[Address.LENGTH]);
-    private final VarDB<String> name = Context.newVarDB("name", String.class);
-    private final VarDB<String> symbol = Context.newVarDB("symbol", String.class);
-    private final DictDB<Address, IntSet> holderTokens = Context.newDictDB("holders", IntSet.class);
-    private final EnumerableMap<BigInteger, Address> tokenOwners = new EnumerableMap<>("owners", BigInteger.class, Address.class);
-    private final DictDB<BigInteger, Address> tokenApprovals = Context.newDictDB("approvals", Address.class);
+/**
+ * An IRC3 implementation with the enumeration extension on top of {@link IRC3Base}.
+ */
+public abstract class IRC3Basic extends IRC3Base {
+    private final EnumerableSetBranch<Address, BigInteger> holderTokens = new EnumerableSetBranch<>("holder_tokens", BigInteger.class);
+    private final CompactEnumerableMap<BigInteger, Address> tokenOwners = new CompactEnumerableMap<>("owners", BigInteger.class, Address.class);
+    private final SortedIndex sortedTokens = new SortedIndex("sorted_tokens", _sortedIndexOrder());
+    // the layout of earlier versions, only read and cleared by _migrateLegacyStorage
+    private final DictDB<Address, IntSet> legacyHolderTokens = Context.newDictDB("holders", IntSet.class);
+    private final EnumerableMap<BigInteger, Address> legacyTokenOwners = new EnumerableMap<>("owners", BigInteger.class, Address.class);
 
     public IRC3Basic(String _name, String _symbol) {
-        // initialize values only at first deployment
-        if (this.name.get() == null) {
-            this.name.set(_name);
-            this.symbol.set(_symbol);
-        }
-    }
-
-    @External(readonly=true)
-    public String name() {
-        return name.get();
-    }
-
-    @External(readonly=true)
-    public String symbol() {
-        return symbol.get();
-    }
-
-    @External(readonly=true)
-    public int balanceOf(Address _owner) {
-        Context.require(!ZERO_ADDRESS.equals(_owner), "Owner address cannot be zero address");
-        var tokens = holderTokens.get(_owner);
-        return (tokens != null) ? tokens.length() : 0;
-    }
-
-    @External(readonly=true)
-    public Address ownerOf(BigInteger _tokenId) {
-        return tokenOwners.getOrThrow(_tokenId, "Non-existent token");
-    }
-
-    @External(readonly=true)
-    public Address getApproved(BigInteger _tokenId) {
-        return tokenApprovals.getOrDefault(_tokenId, ZERO_ADDRESS);
-    }
-
-    @External
-    public void approve(Address _to, BigInteger _tokenId) {
-        Address owner = ownerOf(_tokenId);
-        Context.require(!owner.equals(_to), "Cannot approve owner");
-        Context.require(owner.equals(Context.getCaller()), "Only owner can call this method");
-        _approve(_to, _tokenId);
-    }
-
-    private void _approve(Address to, BigInteger tokenId) {
-        tokenApprovals.set(tokenId, to);
-        Approval(ownerOf(tokenId), to, tokenId);
-    }
-
-    @External
-    public void transfer(Address _to, BigInteger _tokenId) {
-        Address owner = ownerOf(_tokenId);
-        Context.require(owner.equals(Context.getCaller()), "Only owner can call this method");
-        _transfer(owner, _to, _tokenId);
-    }
-
-    @External
-    public void transferFrom(Address _from, Address _to, BigInteger _tokenId) {
-        Address owner = ownerOf(_tokenId);
-        Address spender = Context.getCaller();
-        Context.require(owner.equals(spender) || getApproved(_tokenId).equals(spender), "Spender is not authorized to transfer tokens");
-        _transfer(_from, _to, _tokenId);
-    }
-
-    private void _transfer(Address from, Address to, BigInteger tokenId) {
-        Context.require(ownerOf(tokenId).equals(from), "from address is not owner");
-        Context.require(!to.equals(ZERO_ADDRESS), "destination address cannot be zero address");
-        // clear approvals from the previous owner
-        _approve(ZERO_ADDRESS, tokenId);
-
-        _removeTokenFrom(tokenId, from);
-        _addTokenTo(tokenId, to);
-        tokenOwners.set(tokenId, to);
-        Transfer(from, to, tokenId);
+        super(_name, _symbol);
     }
 
     /**
@@ -133,62 +68,166 @@ public abstract class IRC3Basic implements IRC3 {
      */
     @External(readonly=true)
     public BigInteger tokenOfOwnerByIndex(Address _owner, int _index) {
-        var tokens = holderTokens.get(_owner);
-        return (tokens != null) ? tokens.at(_index) : BigInteger.ZERO;
+        var tokenId = holderTokens.at(_owner, _index);
+        if (tokenId == null) {
+            // an owner without tokens gets zero
+            Context.require(holderTokens.length(_owner) == 0, "Index out of range");
+            return BigInteger.ZERO;
+        }
+        return tokenId;
     }
 
     /**
-     * Mints `tokenId` and transfers it to `to`.
+     * (Extension) Returns up to {@code _limit} token IDs of all the tokens stored by the contract,
+     * starting from {@code _offset}.
      */
-    protected void _mint(Address to, BigInteger tokenId) {
-        Context.require(!ZERO_ADDRESS.equals(to), "Destination address cannot be zero address");
-        Context.require(!_tokenExists(tokenId), "Token already exists");
+    @External(readonly=true)
+    public BigInteger[] allTokens(int _offset, int _limit) {
+        var tokens = tokenOwners.slice(_offset, _limit);
+        BigInteger[] tokenIds = new BigInteger[tokens.size()];
+        for (int i = 0; i < tokenIds.length; i++) {
+            tokenIds[i] = tokens.get(i);
+        }
+        return tokenIds;
+    }
 
-        _addTokenTo(tokenId, to);
-        tokenOwners.set(tokenId, to);
-        Transfer(ZERO_ADDRESS, to, tokenId);
+    /**
+     * (Extension) Returns up to {@code _limit} token IDs owned by {@code _owner}, starting from {@code _offset}.
+     */
+    @External(readonly=true)
+    public BigInteger[] tokensOfOwner(Address _owner, int _offset, int _limit) {
+        var tokens = holderTokens.slice(_owner, _offset, _limit);
+        BigInteger[] tokenIds = new BigInteger[tokens.size()];
+        for (int i = 0; i < tokenIds.length; i++) {
+            tokenIds[i] = tokens.get(i);
+        }
+        return tokenIds;
     }
 
     /**
-     * Destroys `tokenId`.
+     * (Extension) Returns up to {@code _limit} token IDs in [{@code _from}, {@code _to}) in ascending order.
+     * A missing bound means that the range is unbounded on that side.
+     * To fetch the next page, pass the last token ID returned plus one as {@code _from}.
+     * Available only if the sorted token index is enabled.
      */
-    protected void _burn(BigInteger tokenId) {
-        Address owner = ownerOf(tokenId);
-        // clear approvals
-        _approve(ZERO_ADDRESS, tokenId);
-
-        _removeTokenFrom(tokenId, owner);
-        tokenOwners.remove(tokenId);
-        Transfer(owner, ZERO_ADDRESS, tokenId);
+    @External(readonly=true)
+    public BigInteger[] tokensInRange(int _limit, @Optional BigInteger _from, @Optional BigInteger _to) {
+        Context.require(_sortedTokenIndexEnabled(), "Sorted token index is not enabled");
+        List<BigInteger> tokens = sortedTokens.ascending(_from, _to, _limit);
+        BigInteger[] tokenIds = new BigInteger[tokens.size()];
+        for (int i = 0; i < tokenIds.length; i++) {
+            tokenIds[i] = tokens.get(i);
+        }
+        return tokenIds;
     }
 
+    /**
+     * Returns true if the token IDs are also kept sorted on-chain, which enables
+     * {@link #tokensInRange(int, BigInteger, BigInteger)}.
+     * It costs a few extra storage accesses per mint and burn, and must not change once tokens have been minted.
+     */
+    protected boolean _sortedTokenIndexEnabled() {
+        return false;
+    }
+
+    /**
+     * Returns the maximum number of token IDs per node of the sorted token index.
+     * A wider node means fewer reads per lookup but a larger write per update.
+     * It must not change once tokens have been minted.
+     */
+    protected int _sortedIndexOrder() {
+        return SortedIndex.DEFAULT_ORDER;
+    }
+
+    /**
+     * Moves up to {@code limit} tokens from the storage layout of earlier versions of this class,
+     * a {@code DictDB} of {@link IntSet} per holder and an {@link EnumerableMap} of owners, into the current one,
+     * clearing the old entries as it goes. Returns the number of tokens left to migrate.
+     * <p>
+     * A contract updated in place over the earlier layout must call it, for example from an owner-only
+     * external method across several transactions, until it returns zero. Until then the tokens not yet
+     * migrated do not exist for this class, so minting and transfers should be held off.
+     */
+    protected int _migrateLegacyStorage(int limit) {
+        Context.require(limit >= 0, "Invalid limit");
+        int remaining = legacyTokenOwners.length();
+        for (; limit > 0 && remaining > 0; limit--) {
+            // take the last entry, so that no other entry is moved
+            BigInteger tokenId = legacyTokenOwners.getKey(--remaining);
+            Address owner = legacyTokenOwners.get(tokenId);
+            legacyTokenOwners.remove(tokenId);
+            var tokens = legacyHolderTokens.get(owner);
+            if (tokens != null) {
+                tokens.remove(tokenId);
+                if (tokens.length() == 0) {
+                    legacyHolderTokens.set(owner, null);
+                }
+            }
+            if (!tokenOwners.contains(tokenId)) {
+                _updateOwner(tokenId, null, owner);
+            }
+        }
+        return remaining;
+    }
+
+    @Override
     protected boolean _tokenExists(BigInteger tokenId) {
         return tokenOwners.contains(tokenId);
     }
 
-    private void _addTokenTo(BigInteger tokenId, Address to) {
-        var tokens = holderTokens.get(to);
-        if (tokens == null) {
-            tokens = new IntSet(to.toString());
-            holderTokens.set(to, tokens);
-        }
-        tokens.add(tokenId);
+    @Override
+    protected Address _ownerOf(BigInteger tokenId) {
+        return tokenOwners.get(tokenId);
     }
 
-    private void _removeTokenFrom(BigInteger tokenId, Address from) {
-        var tokens = holderTokens.get(from);
-        Context.require(tokens != null, "tokens don't exist for this address");
-        tokens.remove(tokenId);
-        if (tokens.length() == 0) {
-            holderTokens.set(from, null);
-        }
+    @Override
+    protected int _balanceOf(Address owner) {
+        return holderTokens.length(owner);
     }
 
-    @EventLog(indexed=3)
-    public void Transfer(Address _from, Address _to, BigInteger _tokenId) {
+    @Override
+    protected void _updateOwner(BigInteger tokenId, Address from, Address to) {
+        if (from != null) {
+            holderTokens.remove(from, tokenId);
+        }
+        if (to != null) {
+            holderTokens.add(to, tokenId);
+            tokenOwners.set(tokenId, to);
+        } else {
+            tokenOwners.remove(tokenId);
+        }
+        if (_sortedTokenIndexEnabled()) {
+            if (from == null) {
+                sortedTokens.add(tokenId);
+            } else if (to == null) {
+                sortedTokens.remove(tokenId);
+            }
+        }
     }
 
-    @EventLog(indexed=3)
-    public void Approval(Address _owner, Address _approved, BigInteger _tokenId) {
+    @Override
+    protected void _updateOwnerBatch(BigInteger[] tokenIds, Address from, Address to) {
+        if (from.equals(to)) {
+            for (BigInteger tokenId : tokenIds) {
+                Context.require(from.equals(tokenOwners.get(tokenId)), "from address is not owner");
+            }
+            return;
+        }
+        holderTokens.removeAll(from, tokenIds);
+        // check the owner and update it with a single read of the owner record
+        if (to != null) {
+            holderTokens.addAll(to, tokenIds);
+            for (BigInteger tokenId : tokenIds) {
+                Context.require(tokenOwners.replace(tokenId, from, to), "from address is not owner");
+            }
+        } else {
+            boolean sorted = _sortedTokenIndexEnabled();
+            for (BigInteger tokenId : tokenIds) {
+                Context.require(tokenOwners.remove(tokenId, from), "from address is not owner");
+                if (sorted) {
+                    sortedTokens.remove(tokenId);
+                }
+            }
+        }
     }
 }
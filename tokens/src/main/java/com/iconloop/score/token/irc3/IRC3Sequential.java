@@ -0,0 +1,237 @@
+/*
+ * Copyright 2021 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.token.irc3;
+
+import score.Address;
+import score.Context;
+import score.DictDB;
+import score.VarDB;
+import score.annotation.EventLog;
+
+import java.math.BigInteger;
+
+/**
+ * A non-enumerable IRC3 implementation for tokens minted with sequential IDs in batches.
+ * <p>
+ * The first token of each batch gets an ownership record at minting, and so does every token whose
+ * offset from the start token ID is a multiple of the checkpoint interval. The owner of the other tokens
+ * is resolved by searching back to the nearest ownership record, so a lookup reads fewer records than
+ * the interval however large the batch is, and a batch is split when one of its tokens is transferred
+ * or burned.
+ * <p>
+ * Subclasses may opt in to a single {@code ConsecutiveTransfer} event per range mint and range burn,
+ * in the spirit of EIP-2309, instead of a {@code Transfer} event per token.
+ */
+public abstract class IRC3Sequential extends IRC3Base {
+    private final VarDB<BigInteger> nextTokenId = Context.newVarDB("next_token_id", BigInteger.class);
+    // token ID => owner of the run starting at the token ID (zero address for a burned token)
+    private final DictDB<BigInteger, Address> ownerships = Context.newDictDB("ownerships", Address.class);
+
+    public IRC3Sequential(String _name, String _symbol) {
+        super(_name, _symbol);
+    }
+
+    /**
+     * Returns the ID of the first token to be minted.
+     */
+    protected BigInteger _startTokenId() {
+        return BigInteger.ZERO;
+    }
+
+    /**
+     * Returns the number of tokens between the checkpoint ownership records written at minting.
+     * It bounds the number of records read to resolve an owner, at the cost of a write per interval
+     * on a batch mint, and must not change once tokens have been minted.
+     */
+    protected int _checkpointInterval() {
+        return 64;
+    }
+
+    private boolean isCheckpoint(BigInteger tokenId) {
+        return tokenId.subtract(_startTokenId()).mod(BigInteger.valueOf(_checkpointInterval())).signum() == 0;
+    }
+
+    /**
+     * Returns the ID of the next token to be minted.
+     */
+    protected BigInteger _nextTokenId() {
+        return nextTokenId.getOrDefault(_startTokenId());
+    }
+
+    /**
+     * Mints `quantity` tokens with sequential IDs and transfers them to `to`.
+     * Returns the ID of the first token minted.
+     */
+    protected BigInteger _mintSequential(Address to, int quantity) {
+        Context.require(!ZERO_ADDRESS.equals(to), "Destination address cannot be zero address");
+        Context.require(quantity > 0, "quantity needs to be positive");
+        Context.require(_checkpointInterval() > 0, "Checkpoint interval needs to be positive");
+
+        BigInteger startId = _nextTokenId();
+        ownerships.set(startId, to);
+        _changeBalance(to, quantity);
+        BigInteger endId = startId.add(BigInteger.valueOf(quantity));
+        // write the checkpoints within the batch, so that a lookup never searches back past one
+        BigInteger interval = BigInteger.valueOf(_checkpointInterval());
+        BigInteger checkpoint = startId.add(interval).subtract(startId.subtract(_startTokenId()).mod(interval));
+        for (; checkpoint.compareTo(endId) < 0; checkpoint = checkpoint.add(interval)) {
+            ownerships.set(checkpoint, to);
+        }
+        nextTokenId.set(endId);
+        _emitRangeTransfer(ZERO_ADDRESS, to, startId, endId.subtract(BigInteger.ONE));
+        return startId;
+    }
+
+    /**
+     * Destroys the tokens from `fromTokenId` to `toTokenId` (inclusive), which must be owned by the same owner.
+     */
+    protected void _burnRange(BigInteger fromTokenId, BigInteger toTokenId) {
+        Context.require(fromTokenId.compareTo(toTokenId) <= 0, "Invalid token range");
+        Address owner = ownerOf(fromTokenId);
+        Context.require(toTokenId.compareTo(_nextTokenId()) < 0, "Non-existent token");
+
+        // the burned marker at the start of the range covers the whole range
+        ownerships.set(fromTokenId, ZERO_ADDRESS);
+        int count = 1;
+        for (BigInteger id = fromTokenId.add(BigInteger.ONE); id.compareTo(toTokenId) <= 0; id = id.add(BigInteger.ONE)) {
+            Address record = ownerships.get(id);
+            if (record != null) {
+                Context.require(owner.equals(record), "Tokens are not owned by the same owner");
+                // a checkpoint stays as a burned marker, so that the lookups within the range stay bounded
+                ownerships.set(id, isCheckpoint(id) ? ZERO_ADDRESS : null);
+            }
+            count++;
+        }
+        for (BigInteger id = fromTokenId; id.compareTo(toTokenId) <= 0; id = id.add(BigInteger.ONE)) {
+            _clearApproval(owner, id);
+        }
+        _changeBalance(owner, -count);
+
+        // split the run, so that the next token keeps its owner
+        BigInteger nextId = toTokenId.add(BigInteger.ONE);
+        if (nextId.compareTo(_nextTokenId()) < 0 && ownerships.get(nextId) == null) {
+            ownerships.set(nextId, owner);
+        }
+        _emitRangeTransfer(owner, ZERO_ADDRESS, fromTokenId, toTokenId);
+    }
+
+    /**
+     * Returns true if a single {@code ConsecutiveTransfer} event is emitted for a range mint or a range burn.
+     */
+    protected boolean _consecutiveTransferEnabled() {
+        return false;
+    }
+
+    private void _emitRangeTransfer(Address from, Address to, BigInteger fromTokenId, BigInteger toTokenId) {
+        if (_consecutiveTransferEnabled()) {
+            ConsecutiveTransfer(from, to, fromTokenId, toTokenId);
+        } else {
+            for (BigInteger id = fromTokenId; id.compareTo(toTokenId) <= 0; id = id.add(BigInteger.ONE)) {
+                Transfer(from, to, id);
+            }
+        }
+    }
+
+    /**
+     * Returns the token IDs covered by a {@code ConsecutiveTransfer} event.
+     */
+    public static BigInteger[] expandConsecutiveTransfer(BigInteger _fromTokenId, BigInteger _toTokenId) {
+        int length = _toTokenId.subtract(_fromTokenId).intValueExact() + 1;
+        BigInteger[] tokenIds = new BigInteger[length];
+        for (int i = 0; i < length; i++) {
+            tokenIds[i] = _fromTokenId.add(BigInteger.valueOf(i));
+        }
+        return tokenIds;
+    }
+
+    /**
+     * Mints `tokenId` and transfers it to `to`.
+     * `tokenId` must be the ID of the next token to be minted.
+     */
+    @Override
+    protected void _mint(Address to, BigInteger tokenId) {
+        Context.require(tokenId.equals(_nextTokenId()), "Token ID is not sequential");
+        _mintSequential(to, 1);
+    }
+
+    @Override
+    protected Address _ownerOf(BigInteger tokenId) {
+        if (tokenId.compareTo(_startTokenId()) < 0 || tokenId.compareTo(_nextTokenId()) >= 0) {
+            return null;
+        }
+        // every run starts with an ownership record and every checkpoint keeps one,
+        // so the loop stops within the checkpoint interval
+        BigInteger id = tokenId;
+        Address owner;
+        while ((owner = ownerships.get(id)) == null) {
+            id = id.subtract(BigInteger.ONE);
+        }
+        return ZERO_ADDRESS.equals(owner) ? null : owner;
+    }
+
+    @Override
+    protected void _updateOwner(BigInteger tokenId, Address from, Address to) {
+        Context.require(from != null, "Use _mintSequential to mint tokens");
+        if (from.equals(to)) {
+            return;
+        }
+        _changeBalance(from, -1);
+        if (to != null) {
+            _changeBalance(to, 1);
+        }
+        ownerships.set(tokenId, (to != null) ? to : ZERO_ADDRESS);
+
+        // split the run, so that the next token keeps its owner
+        BigInteger nextId = tokenId.add(BigInteger.ONE);
+        if (nextId.compareTo(_nextTokenId()) < 0 && ownerships.get(nextId) == null) {
+            ownerships.set(nextId, from);
+        }
+    }
+
+    @Override
+    protected void _updateOwnerBatch(BigInteger[] tokenIds, Address from, Address to) {
+        // check every token before any run is split
+        for (BigInteger tokenId : tokenIds) {
+            Context.require(from.equals(_ownerOf(tokenId)), "from address is not owner");
+        }
+        if (from.equals(to)) {
+            return;
+        }
+        BigInteger endId = _nextTokenId();
+        for (BigInteger tokenId : tokenIds) {
+            ownerships.set(tokenId, (to != null) ? to : ZERO_ADDRESS);
+            // split the run, so that the next token keeps its owner
+            BigInteger nextId = tokenId.add(BigInteger.ONE);
+            if (nextId.compareTo(endId) < 0 && ownerships.get(nextId) == null) {
+                ownerships.set(nextId, from);
+            }
+        }
+        _changeBalance(from, -tokenIds.length);
+        if (to != null) {
+            _changeBalance(to, tokenIds.length);
+        }
+    }
+
+    /**
+     * (EventLog) Triggers instead of {@code Transfer} events on a range mint or a range burn when enabled.
+     * It is equivalent to a {@code Transfer} event for each token ID from {@code _fromTokenId}
+     * to {@code _toTokenId} (inclusive).
+     */
+    @EventLog(indexed=3)
+    public void ConsecutiveTransfer(Address _from, Address _to, BigInteger _fromTokenId, BigInteger _toTokenId) {
+    }
+}
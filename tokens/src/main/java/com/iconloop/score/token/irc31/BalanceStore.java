@@ -0,0 +1,183 @@
+/*
+ * Copyright 2021 ICONation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.token.irc31;
+
+import score.Address;
+import score.BranchDB;
+import score.DictDB;
+import scorex.util.HashMap;
+
+import java.math.BigInteger;
+
+/**
+ * Access to the balances of the tokens, which lives for a single invocation.
+ * <p>
+ * When packing is enabled, the balances of {@value #COUNTERS_PER_SLOT} adjacent token IDs of an owner
+ * share one storage value of {@value #COUNTER_BITS}-bit counters. A counter saturated at {@link #OVERFLOW}
+ * means that the balance does not fit, and is kept in the per-ID entry instead. Negative token IDs are
+ * never packed. The packed slots are read at most once, and the changed ones are written back on {@link #flush()}.
+ * <p>
+ * When the single owner path is enabled, a token with a single owner record is held entirely by that owner,
+ * and its balances are answered from the record without reading any balance entry.
+ * An instance must not be kept across invocations.
+ */
+class BalanceStore {
+    static final int COUNTER_BITS = 16;
+    static final int COUNTERS_PER_SLOT = 16;
+    static final int OVERFLOW = (1 << COUNTER_BITS) - 1;
+    private static final BigInteger COUNTER_MASK = BigInteger.valueOf(OVERFLOW);
+    // log2(COUNTERS_PER_SLOT)
+    private static final int SLOT_SHIFT = 4;
+
+    // id => (owner => balance)
+    private final BranchDB<BigInteger, DictDB<Address, BigInteger>> balances;
+    // owner => (slot index => packed counters), or null if packing is disabled
+    private final BranchDB<Address, DictDB<BigInteger, BigInteger>> packedBalances;
+    // id => owner of a token with the supply of one, or null if the single owner path is disabled
+    private final DictDB<BigInteger, Address> singleOwners;
+    private final HashMap<Address, HashMap<BigInteger, Slot>> slots = new HashMap<>();
+    private final HashMap<BigInteger, Address> owners = new HashMap<>();
+
+    BalanceStore(BranchDB<BigInteger, DictDB<Address, BigInteger>> balances,
+                 BranchDB<Address, DictDB<BigInteger, BigInteger>> packedBalances,
+                 DictDB<BigInteger, Address> singleOwners) {
+        this.balances = balances;
+        this.packedBalances = packedBalances;
+        this.singleOwners = singleOwners;
+    }
+
+    private static class Slot {
+        private final BigInteger original;
+        private BigInteger current;
+
+        Slot(BigInteger value) {
+            this.original = value;
+            this.current = value;
+        }
+
+        boolean isDirty() {
+            return !current.equals(original);
+        }
+    }
+
+    private boolean isPacked(BigInteger id) {
+        return packedBalances != null && id.signum() >= 0;
+    }
+
+    private Slot slotOf(Address owner, BigInteger id) {
+        HashMap<BigInteger, Slot> ownerSlots = slots.get(owner);
+        if (ownerSlots == null) {
+            ownerSlots = new HashMap<>();
+            slots.put(owner, ownerSlots);
+        }
+        BigInteger index = id.shiftRight(SLOT_SHIFT);
+        Slot slot = ownerSlots.get(index);
+        if (slot == null) {
+            slot = new Slot(packedBalances.at(owner).getOrDefault(index, BigInteger.ZERO));
+            ownerSlots.put(index, slot);
+        }
+        return slot;
+    }
+
+    private static int shiftOf(BigInteger id) {
+        return (id.intValue() & (COUNTERS_PER_SLOT - 1)) * COUNTER_BITS;
+    }
+
+    private int counterOf(Address owner, BigInteger id) {
+        return slotOf(owner, id).current.shiftRight(shiftOf(id)).intValue() & OVERFLOW;
+    }
+
+    private void setCounter(Address owner, BigInteger id, int counter) {
+        Slot slot = slotOf(owner, id);
+        int shift = shiftOf(id);
+        slot.current = slot.current.andNot(COUNTER_MASK.shiftLeft(shift))
+                .or(BigInteger.valueOf(counter).shiftLeft(shift));
+    }
+
+    /**
+     * Returns the single owner of `id`, or null if the token is not held by a single owner record.
+     */
+    Address singleOwnerOf(BigInteger id) {
+        if (singleOwners == null) {
+            return null;
+        }
+        if (!owners.containsKey(id)) {
+            owners.put(id, singleOwners.get(id));
+        }
+        return owners.get(id);
+    }
+
+    /**
+     * Sets the single owner record of `id`, which is written immediately.
+     */
+    void setSingleOwner(BigInteger id, Address owner) {
+        singleOwners.set(id, owner);
+        owners.put(id, owner);
+    }
+
+    BigInteger balanceOf(Address owner, BigInteger id) {
+        Address singleOwner = singleOwnerOf(id);
+        if (singleOwner != null) {
+            return singleOwner.equals(owner) ? BigInteger.ONE : BigInteger.ZERO;
+        }
+        if (isPacked(id)) {
+            int counter = counterOf(owner, id);
+            if (counter != OVERFLOW) {
+                return BigInteger.valueOf(counter);
+            }
+        }
+        return balances.at(id).getOrDefault(owner, BigInteger.ZERO);
+    }
+
+    /**
+     * Sets the balance of `owner` for `id`.
+     * A packed balance is staged until {@link #flush()}, while a per-ID entry is written immediately.
+     */
+    void setBalance(Address owner, BigInteger id, BigInteger value) {
+        if (!isPacked(id)) {
+            balances.at(id).set(owner, value);
+            return;
+        }
+        boolean overflowed = counterOf(owner, id) == OVERFLOW;
+        if (value.compareTo(COUNTER_MASK) < 0) {
+            setCounter(owner, id, value.intValue());
+            if (overflowed) {
+                balances.at(id).set(owner, null);
+            }
+        } else {
+            if (!overflowed) {
+                setCounter(owner, id, OVERFLOW);
+            }
+            balances.at(id).set(owner, value);
+        }
+    }
+
+    /**
+     * Writes back the changed packed slots, each of them exactly once.
+     */
+    void flush() {
+        for (var ownerEntry : slots.entrySet()) {
+            DictDB<BigInteger, BigInteger> ownerBalances = packedBalances.at(ownerEntry.getKey());
+            for (var entry : ownerEntry.getValue().entrySet()) {
+                Slot slot = entry.getValue();
+                if (slot.isDirty()) {
+                    ownerBalances.set(entry.getKey(), (slot.current.signum() != 0) ? slot.current : null);
+                }
+            }
+        }
+    }
+}
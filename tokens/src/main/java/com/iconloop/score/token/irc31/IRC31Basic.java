@@ -16,17 +16,34 @@
 
 package com.iconloop.score.token.irc31;
 
+import com.iconloop.score.util.EnumerableSetBranch;
+import com.iconloop.score.util.TokenURI;
 import score.Address;
 import score.BranchDB;
 import score.ByteArrayObjectWriter;
 import score.Context;
 import score.DictDB;
+import score.VarDB;
 import score.annotation.EventLog;
 import score.annotation.External;
 import score.annotation.Optional;
+import scorex.util.ArrayList;
+import scorex.util.HashMap;
 
 import java.math.BigInteger;
-
+import java.util.List;
+
+/**
+ * A basic IRC31 implementation.
+ * <p>
+ * Subclasses may opt in to an on-chain index of the token IDs held by each owner,
+ * and to an on-chain index of the holders of each token ID.
+ * Both are updated only when a balance changes from or to zero.
+ * <p>
+ * Subclasses with small balances may also opt in to packed balances, where the balances of
+ * adjacent token IDs of an owner share a single storage value, and to a single owner path, where the owner
+ * of a token minted with the supply of one is stored directly. See {@link BalanceStore}.
+ */
 public abstract class IRC31Basic implements IRC31 {
 
     // ================================================
@@ -39,9 +56,21 @@ public abstract class IRC31Basic implements IRC31 {
     // ================================================
     // id => (owner => balance)
     private final BranchDB<BigInteger, DictDB<Address, BigInteger>> balances = Context.newBranchDB("balances", BigInteger.class);
+    // owner => (slot index => packed balances of adjacent IDs) (only if enabled)
+    private final BranchDB<Address, DictDB<BigInteger, BigInteger>> packedBalances = Context.newBranchDB("packed_balances", BigInteger.class);
+    // id => owner of a token with the supply of one (only if enabled)
+    private final DictDB<BigInteger, Address> singleOwners = Context.newDictDB("single_owner", Address.class);
     // owner => (operator => approved)
     private final BranchDB<Address, DictDB<Address, Boolean>> operatorApproval = Context.newBranchDB("approval", Boolean.class);
-    // id => token URI
+    // id => total supply
+    private final DictDB<BigInteger, BigInteger> totalSupplies = Context.newDictDB("total_supply", BigInteger.class);
+    // owner => set of token IDs with a non-zero balance (only if enabled)
+    private final EnumerableSetBranch<Address, BigInteger> ownedTokens = new EnumerableSetBranch<>("owned_tokens", BigInteger.class);
+    // id => set of holders with a non-zero balance (only if enabled)
+    private final EnumerableSetBranch<BigInteger, Address> tokenHolders = new EnumerableSetBranch<>("token_holders", Address.class);
+    // URI template shared by the tokens without their own URI
+    private final VarDB<String> baseURI = Context.newVarDB("base_uri", String.class);
+    // id => token URI, overriding the base URI
     private final DictDB<BigInteger, String> tokenURIs = Context.newDictDB("token_uri", String.class);
 
     // ================================================
@@ -50,7 +79,7 @@ public abstract class IRC31Basic implements IRC31 {
 
     @External(readonly=true)
     public BigInteger balanceOf(Address _owner, BigInteger _id) {
-        return balances.at(_id).getOrDefault(_owner, BigInteger.ZERO);
+        return newBalanceStore().balanceOf(_owner, _id);
     }
 
     @External(readonly=true)
@@ -58,16 +87,128 @@ public abstract class IRC31Basic implements IRC31 {
         Context.require(_owners.length == _ids.length,
                 "_owners array size must match with _ids array size");
 
+        BalanceStore store = newBalanceStore();
         BigInteger[] balances = new BigInteger[_owners.length];
         for (int i = 0; i < _owners.length; i++) {
-            balances[i] = balanceOf(_owners[i], _ids[i]);
+            balances[i] = store.balanceOf(_owners[i], _ids[i]);
         }
         return balances;
     }
 
+    /**
+     * (Extension) Returns the total supply of the token.
+     *
+     * @param _id ID of the token
+     * @return The amount of the token minted and not yet burned
+     */
+    @External(readonly=true)
+    public BigInteger totalSupply(BigInteger _id) {
+        return totalSupplies.getOrDefault(_id, BigInteger.ZERO);
+    }
+
+    /**
+     * (Extension) Returns the total supply of multiple tokens.
+     *
+     * @param _ids IDs of the tokens
+     * @return The list of total supply for each token
+     */
+    @External(readonly=true)
+    public BigInteger[] totalSupplyBatch(BigInteger[] _ids) {
+        BigInteger[] supplies = new BigInteger[_ids.length];
+        for (int i = 0; i < _ids.length; i++) {
+            supplies[i] = totalSupply(_ids[i]);
+        }
+        return supplies;
+    }
+
+    /**
+     * (Extension) Returns the owner of a token held by a single owner.
+     * Available only if the single owner path is enabled.
+     *
+     * @param _id ID of the token
+     * @return The owner of the token, or the zero address if the token has no single owner,
+     *         such as a token whose supply has ever grown beyond one
+     */
+    @External(readonly=true)
+    public Address ownerOf(BigInteger _id) {
+        Context.require(_singleOwnerEnabled(), "Single owner path is not enabled");
+        Address owner = singleOwners.get(_id);
+        return (owner != null) ? owner : ZERO_ADDRESS;
+    }
+
+    /**
+     * (Extension) Returns the number of token IDs held by the owner.
+     * Available only if the owner index is enabled.
+     *
+     * @param _owner The address of the token holder
+     * @return The number of token IDs with a non-zero balance
+     */
+    @External(readonly=true)
+    public int tokenCountOf(Address _owner) {
+        Context.require(_ownerIndexEnabled(), "Owner index is not enabled");
+        return ownedTokens.length(_owner);
+    }
+
+    /**
+     * (Extension) Returns up to {@code _limit} token IDs held by the owner, starting from {@code _offset}.
+     * Available only if the owner index is enabled.
+     *
+     * @param _owner  The address of the token holder
+     * @param _offset The index of the first token ID to return
+     * @param _limit  The maximum number of token IDs to return
+     * @return The list of token IDs with a non-zero balance
+     */
+    @External(readonly=true)
+    public BigInteger[] tokensOf(Address _owner, int _offset, int _limit) {
+        Context.require(_ownerIndexEnabled(), "Owner index is not enabled");
+        var tokens = ownedTokens.slice(_owner, _offset, _limit);
+        BigInteger[] ids = new BigInteger[tokens.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = tokens.get(i);
+        }
+        return ids;
+    }
+
+    /**
+     * (Extension) Returns the number of holders of the token.
+     * Available only if the holder index is enabled.
+     *
+     * @param _id ID of the token
+     * @return The number of addresses with a non-zero balance
+     */
+    @External(readonly=true)
+    public int holderCountOf(BigInteger _id) {
+        Context.require(_holderIndexEnabled(), "Holder index is not enabled");
+        return tokenHolders.length(_id);
+    }
+
+    /**
+     * (Extension) Returns up to {@code _limit} holders of the token, starting from {@code _offset}.
+     * Available only if the holder index is enabled.
+     *
+     * @param _id     ID of the token
+     * @param _offset The index of the first holder to return
+     * @param _limit  The maximum number of holders to return
+     * @return The list of addresses with a non-zero balance
+     */
+    @External(readonly=true)
+    public Address[] holdersOf(BigInteger _id, int _offset, int _limit) {
+        Context.require(_holderIndexEnabled(), "Holder index is not enabled");
+        var holders = tokenHolders.slice(_id, _offset, _limit);
+        Address[] result = new Address[holders.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = holders.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the URI set for the token, or the base URI with {@code {id}} substituted if there is none.
+     */
     @External(readonly=true)
     public String tokenURI(BigInteger _id) {
-        return tokenURIs.get(_id);
+        String uri = tokenURIs.get(_id);
+        return (uri != null) ? uri : TokenURI.expand(baseURI.get(), _id);
     }
 
     @External
@@ -78,13 +219,12 @@ public abstract class IRC31Basic implements IRC31 {
                 "_to must be non-zero");
         Context.require(_from.equals(caller) || this.isApprovedForAll(_from, caller),
                 "Need operator approval for 3rd party transfers");
-        Context.require(_value.signum() >= 0 && balanceOf(_from, _id).compareTo(_value) >= 0,
-                "Insufficient funds");
+        Context.require(_value.signum() >= 0, "Insufficient funds");
 
         // Transfer funds
-        DictDB<Address, BigInteger> balance = balances.at(_id);
-        balance.set(_from, balanceOf(_from, _id).subtract(_value));
-        balance.set(_to, balanceOf(_to, _id).add(_value));
+        BalanceStore store = newBalanceStore();
+        _transferInternal(store, _from, _to, _id, _value);
+        store.flush();
 
         // Emit event
         this.TransferSingle(caller, _from, _to, _id, _value);
@@ -106,17 +246,17 @@ public abstract class IRC31Basic implements IRC31 {
         Context.require(_from.equals(caller) || this.isApprovedForAll(_from, caller),
                 "Need operator approval for 3rd party transfers");
 
-        for (int i = 0; i < _ids.length; i++) {
-            BigInteger _id = _ids[i];
-            BigInteger _value = _values[i];
-            Context.require(_value.signum() >= 0 && balanceOf(_from, _id).compareTo(_value) >= 0,
-                    "Insufficient funds");
+        for (BigInteger _value : _values) {
+            Context.require(_value.signum() >= 0, "Insufficient funds");
+        }
 
-            // Transfer funds
-            DictDB<Address, BigInteger> balance = balances.at(_id);
-            balance.set(_from, balanceOf(_from, _id).subtract(_value));
-            balance.set(_to, balanceOf(_to, _id).add(_value));
+        // Transfer funds once per distinct ID, with the amounts of repeated IDs summed up
+        BalanceStore store = newBalanceStore();
+        TokenAmounts transfers = TokenAmounts.of(_ids, _values);
+        for (int i = 0; i < transfers.size(); i++) {
+            _transferInternal(store, _from, _to, transfers.idAt(i), transfers.amountAt(i));
         }
+        store.flush();
 
         // Emit event
         this.TransferBatch(caller, _from, _to, rlpEncode(_ids), rlpEncode(_values));
@@ -128,6 +268,91 @@ public abstract class IRC31Basic implements IRC31 {
         }
     }
 
+    /**
+     * (Extension) Transfers {@code _values[i]} amount of the token {@code _ids[i]} from {@code _from}
+     * to {@code _to[i]} for each i, debiting {@code _from} only once per distinct token ID
+     * and crediting each recipient only once per distinct token ID.
+     * A {@code TransferSingle} event is emitted for each transfer, and {@code onIRC31Received} is called
+     * in each recipient which is a contract, in the order of the transfers.
+     * <p>
+     * Throws unless the caller is the current token holder or the approved operator.
+     * Throws if {@code _from} does not have enough amount to transfer for a token ID.
+     * Throws if any of {@code _to} is the zero address.
+     *
+     * @param _from   Source address
+     * @param _to     Target addresses
+     * @param _ids    IDs of the tokens
+     * @param _values Transfer amounts per token
+     * @param _data   Additional data that should be sent unaltered in call to each of {@code _to}
+     */
+    @External
+    public void transferToMany(Address _from, Address[] _to, BigInteger[] _ids, BigInteger[] _values, @Optional byte[] _data) {
+        final Address caller = Context.getCaller();
+
+        Context.require(_to.length == _ids.length && _ids.length == _values.length,
+                "to/id/value triples mismatch");
+        Context.require(_from.equals(caller) || this.isApprovedForAll(_from, caller),
+                "Need operator approval for 3rd party transfers");
+        for (int i = 0; i < _to.length; i++) {
+            Context.require(!_to[i].equals(ZERO_ADDRESS), "_to must be non-zero");
+            Context.require(_values[i].signum() >= 0, "Insufficient funds");
+        }
+
+        // Debit the sender once per distinct ID, then credit each recipient once per distinct ID
+        BalanceStore store = newBalanceStore();
+        TokenAmounts debits = new TokenAmounts();
+        for (int i = 0; i < _to.length; i++) {
+            if (store.singleOwnerOf(_ids[i]) != null) {
+                // a single owner token moves as a whole
+                _transferInternal(store, _from, _to[i], _ids[i], _values[i]);
+            } else {
+                debits.add(_ids[i], _values[i]);
+            }
+        }
+        for (int i = 0; i < debits.size(); i++) {
+            BigInteger id = debits.idAt(i);
+            BigInteger fromBalance = store.balanceOf(_from, id);
+            Context.require(fromBalance.compareTo(debits.amountAt(i)) >= 0, "Insufficient funds");
+            if (debits.amountAt(i).signum() > 0) {
+                _setBalance(store, id, _from, fromBalance, fromBalance.subtract(debits.amountAt(i)));
+            }
+        }
+        // the recipients are kept in the order of their first occurrence
+        List<Address> recipients = new ArrayList<>();
+        HashMap<Address, TokenAmounts> credits = new HashMap<>();
+        for (int i = 0; i < _to.length; i++) {
+            if (_values[i].signum() > 0 && store.singleOwnerOf(_ids[i]) == null) {
+                TokenAmounts amounts = credits.get(_to[i]);
+                if (amounts == null) {
+                    amounts = new TokenAmounts();
+                    credits.put(_to[i], amounts);
+                    recipients.add(_to[i]);
+                }
+                amounts.add(_ids[i], _values[i]);
+            }
+        }
+        for (Address to : recipients) {
+            TokenAmounts amounts = credits.get(to);
+            for (int i = 0; i < amounts.size(); i++) {
+                BigInteger id = amounts.idAt(i);
+                BigInteger toBalance = store.balanceOf(to, id);
+                _setBalance(store, id, to, toBalance, toBalance.add(amounts.amountAt(i)));
+            }
+        }
+        store.flush();
+
+        byte[] data = _data == null ? new byte[]{} : _data;
+        for (int i = 0; i < _to.length; i++) {
+            // Emit event
+            this.TransferSingle(caller, _from, _to[i], _ids[i], _values[i]);
+
+            if (_to[i].isContract()) {
+                // Call {@code onIRC31Received} if the recipient is a contract
+                Context.call(_to[i], "onIRC31Received", caller, _from, _ids[i], _values[i], data);
+            }
+        }
+    }
+
     @External
     public void setApprovalForAll(Address _operator, boolean _approved) {
         final Address caller = Context.getCaller();
@@ -181,21 +406,136 @@ public abstract class IRC31Basic implements IRC31 {
         return writer.toByteArray();
     }
 
+    /**
+     * Sets the URI template of the tokens without their own URI.
+     * {@code {id}} in the template is replaced with the token ID in hexadecimal, zero-padded to 64 characters.
+     */
+    protected void _setBaseURI(String _uri) {
+        baseURI.set(_uri);
+    }
+
     protected void _setTokenURI(BigInteger _id, String _uri) {
         Context.require(_uri.length() > 0, "Uri should be set");
         tokenURIs.set(_id, _uri);
         this.URI(_id, _uri);
     }
 
-    private void _mintInternal(Address owner, BigInteger id, BigInteger amount) {
+    /**
+     * Returns true if the token IDs held by each owner are indexed on-chain.
+     * It must not change once tokens have been minted.
+     */
+    protected boolean _ownerIndexEnabled() {
+        return false;
+    }
+
+    /**
+     * Returns true if the holders of each token ID are indexed on-chain.
+     * It must not change once tokens have been minted.
+     */
+    protected boolean _holderIndexEnabled() {
+        return false;
+    }
+
+    /**
+     * Returns true if the balances of adjacent token IDs of an owner are packed into a single storage value.
+     * It suits tokens with small balances, such as game items, and must not change once tokens have been minted.
+     */
+    protected boolean _packedBalancesEnabled() {
+        return false;
+    }
+
+    /**
+     * Returns true if the owner of a token minted with the supply of one is stored directly,
+     * which saves a write per transfer and enables {@link #ownerOf(BigInteger)}.
+     * The token moves to the regular balances once its supply grows.
+     * It must not change once tokens have been minted.
+     */
+    protected boolean _singleOwnerEnabled() {
+        return false;
+    }
+
+    private BalanceStore newBalanceStore() {
+        return new BalanceStore(balances,
+                _packedBalancesEnabled() ? packedBalances : null,
+                _singleOwnerEnabled() ? singleOwners : null);
+    }
+
+    private void _setBalance(BalanceStore store, BigInteger id, Address owner,
+                             BigInteger oldValue, BigInteger newValue) {
+        store.setBalance(owner, id, newValue);
+        // the indexes change only when the balance changes from or to zero
+        if (oldValue.signum() != newValue.signum()) {
+            _updateIndexes(id, owner, newValue.signum() > 0);
+        }
+    }
+
+    private void _updateIndexes(BigInteger id, Address owner, boolean held) {
+        if (_ownerIndexEnabled()) {
+            if (held) {
+                ownedTokens.add(owner, id);
+            } else {
+                ownedTokens.remove(owner, id);
+            }
+        }
+        if (_holderIndexEnabled()) {
+            if (held) {
+                tokenHolders.add(id, owner);
+            } else {
+                tokenHolders.remove(id, owner);
+            }
+        }
+    }
+
+    private void _transferInternal(BalanceStore store, Address from, Address to, BigInteger id, BigInteger value) {
+        Address singleOwner = store.singleOwnerOf(id);
+        if (singleOwner != null) {
+            // the token moves as a whole with a single write
+            Context.require(value.signum() == 0 || (value.equals(BigInteger.ONE) && singleOwner.equals(from)),
+                    "Insufficient funds");
+            if (value.signum() > 0 && !from.equals(to)) {
+                store.setSingleOwner(id, to);
+                _updateIndexes(id, from, false);
+                _updateIndexes(id, to, true);
+            }
+            return;
+        }
+
+        BigInteger fromBalance = store.balanceOf(from, id);
+        Context.require(fromBalance.compareTo(value) >= 0, "Insufficient funds");
+
+        // nothing to write for a zero value transfer or a self transfer
+        if (value.signum() > 0 && !from.equals(to)) {
+            _setBalance(store, id, from, fromBalance, fromBalance.subtract(value));
+            BigInteger toBalance = store.balanceOf(to, id);
+            _setBalance(store, id, to, toBalance, toBalance.add(value));
+        }
+    }
+
+    private void _mintInternal(BalanceStore store, Address owner, BigInteger id, BigInteger amount) {
         Context.require(amount.compareTo(BigInteger.ZERO) > 0, "Invalid amount");
 
-        BigInteger balance = balanceOf(owner, id);
-        balances.at(id).set(owner, balance.add(amount));
+        BigInteger supply = totalSupply(id);
+        Address singleOwner = store.singleOwnerOf(id);
+        if (singleOwner != null) {
+            // the supply grows, so move the token to the regular balances
+            store.setSingleOwner(id, null);
+            store.setBalance(singleOwner, id, BigInteger.ONE);
+        } else if (_singleOwnerEnabled() && supply.signum() == 0 && amount.equals(BigInteger.ONE)) {
+            store.setSingleOwner(id, owner);
+            _updateIndexes(id, owner, true);
+            _setTotalSupply(id, amount);
+            return;
+        }
+
+        BigInteger ownerBalance = store.balanceOf(owner, id);
+        _setBalance(store, id, owner, ownerBalance, ownerBalance.add(amount));
+        _setTotalSupply(id, supply.add(amount));
     }
 
     protected void _mint(Address owner, BigInteger id, BigInteger amount) {
-        _mintInternal(owner, id, amount);
+        BalanceStore store = newBalanceStore();
+        _mintInternal(store, owner, id, amount);
+        store.flush();
 
         // emit transfer event for Mint semantic
         TransferSingle(owner, ZERO_ADDRESS, owner, id, amount);
@@ -204,26 +544,65 @@ public abstract class IRC31Basic implements IRC31 {
     protected void _mintBatch(Address owner, BigInteger[] ids, BigInteger[] amounts) {
         Context.require(ids.length == amounts.length, "id/amount pairs mismatch");
 
-        for (int i = 0; i < ids.length; i++) {
-            BigInteger id = ids[i];
-            BigInteger amount = amounts[i];
-            _mintInternal(owner, id, amount);
+        for (BigInteger amount : amounts) {
+            Context.require(amount.compareTo(BigInteger.ZERO) > 0, "Invalid amount");
         }
+        // update the balance and the supply once per distinct ID
+        BalanceStore store = newBalanceStore();
+        TokenAmounts mints = TokenAmounts.of(ids, amounts);
+        for (int i = 0; i < mints.size(); i++) {
+            _mintInternal(store, owner, mints.idAt(i), mints.amountAt(i));
+        }
+        store.flush();
 
         // emit transfer event for Mint semantic
         TransferBatch(owner, ZERO_ADDRESS, owner, rlpEncode(ids), rlpEncode(amounts));
     }
 
-    private void _burnInternal(Address owner, BigInteger id, BigInteger amount) {
+    private void _burnInternal(BalanceStore store, Address owner, BigInteger id, BigInteger amount) {
         Context.require(amount.compareTo(BigInteger.ZERO) > 0, "Invalid amount");
 
-        BigInteger balance = balanceOf(owner, id);
-        Context.require(balance.compareTo(amount) >= 0, "Insufficient funds");
-        balances.at(id).set(owner, balance.subtract(amount));
+        Address singleOwner = store.singleOwnerOf(id);
+        if (singleOwner != null) {
+            Context.require(amount.equals(BigInteger.ONE) && singleOwner.equals(owner), "Insufficient funds");
+            store.setSingleOwner(id, null);
+            _updateIndexes(id, owner, false);
+            _setTotalSupply(id, BigInteger.ZERO);
+            return;
+        }
+
+        BigInteger ownerBalance = store.balanceOf(owner, id);
+        Context.require(ownerBalance.compareTo(amount) >= 0, "Insufficient funds");
+        BigInteger supply = totalSupply(id);
+        // a token minted before the supply was tracked has no supply until it is migrated
+        Context.require(supply.compareTo(amount) >= 0, "Insufficient supply");
+        _setBalance(store, id, owner, ownerBalance, ownerBalance.subtract(amount));
+        _setTotalSupply(id, supply.subtract(amount));
+    }
+
+    private void _setTotalSupply(BigInteger id, BigInteger supply) {
+        totalSupplies.set(id, (supply.signum() > 0) ? supply : null);
+    }
+
+    /**
+     * Records the total supply of tokens minted before the supply was tracked.
+     * A contract updated in place over such tokens must call it for each of their IDs before
+     * they are minted or burned again, since a burn cannot exceed the recorded supply.
+     * IDs whose supply is already recorded are rejected.
+     */
+    protected void _migrateTotalSupply(BigInteger[] ids, BigInteger[] supplies) {
+        Context.require(ids.length == supplies.length, "id/supply pairs mismatch");
+        for (int i = 0; i < ids.length; i++) {
+            Context.require(totalSupplies.get(ids[i]) == null, "Supply is already recorded");
+            Context.require(supplies[i].signum() > 0, "Supply should be positive");
+            totalSupplies.set(ids[i], supplies[i]);
+        }
     }
 
     protected void _burn(Address owner, BigInteger id, BigInteger amount) {
-        _burnInternal(owner, id, amount);
+        BalanceStore store = newBalanceStore();
+        _burnInternal(store, owner, id, amount);
+        store.flush();
 
         // emit transfer event for Burn semantic
         TransferSingle(owner, owner, ZERO_ADDRESS, id, amount);
@@ -232,11 +611,16 @@ public abstract class IRC31Basic implements IRC31 {
     protected void _burnBatch(Address owner, BigInteger[] ids, BigInteger[] amounts) {
         Context.require(ids.length == amounts.length, "id/amount pairs mismatch");
 
-        for (int i = 0; i < ids.length; i++) {
-            BigInteger id = ids[i];
-            BigInteger amount = amounts[i];
-            _burnInternal(owner, id, amount);
+        for (BigInteger amount : amounts) {
+            Context.require(amount.compareTo(BigInteger.ZERO) > 0, "Invalid amount");
+        }
+        // update the balance and the supply once per distinct ID
+        BalanceStore store = newBalanceStore();
+        TokenAmounts burns = TokenAmounts.of(ids, amounts);
+        for (int i = 0; i < burns.size(); i++) {
+            _burnInternal(store, owner, burns.idAt(i), burns.amountAt(i));
         }
+        store.flush();
 
         // emit transfer event for Burn semantic
         TransferBatch(owner, owner, ZERO_ADDRESS, rlpEncode(ids), rlpEncode(amounts));
@@ -20,6 +20,7 @@ import score.Address;
 import score.Context;
 import score.DictDB;
 import score.annotation.External;
+import score.annotation.Optional;
 
 import java.math.BigInteger;
 
@@ -40,10 +41,10 @@ public abstract class IRC31MintBurn extends IRC31Basic {
      *
      * @param _id     ID of the token
      * @param _supply The initial token supply
-     * @param _uri    The token URI
+     * @param _uri    The token URI, or empty to use the base URI
      */
     @External
-    public void mint(BigInteger _id, BigInteger _supply, String _uri) {
+    public void mint(BigInteger _id, BigInteger _supply, @Optional String _uri) {
         Context.require(creators.get(_id) == null, "Token is already minted");
         Context.require(_supply.compareTo(BigInteger.ZERO) > 0, "Supply should be positive");
 
@@ -52,8 +53,37 @@ public abstract class IRC31MintBurn extends IRC31Basic {
 
         // mint tokens
         super._mint(caller, _id, _supply);
-        // set token URI
-        super._setTokenURI(_id, _uri);
+        // set token URI only if it overrides the base URI
+        if (_uri != null && _uri.length() > 0) {
+            super._setTokenURI(_id, _uri);
+        }
+    }
+
+    /**
+     * (Extension) Creates new token types and assigns each supply to creator.
+     * Only a single {@code TransferBatch} event is emitted, and no token URI is set,
+     * so the tokens use the base URI until {@link #setTokenURI(BigInteger, String)} is called.
+     * <p>
+     * The creator is still recorded per ID: the IDs of a batch need not be consecutive, so a single record
+     * for the batch could only be found again through a sorted index, which would cost more reads on every
+     * later mint and {@code setTokenURI} than the writes it saves here.
+     *
+     * @param _ids      IDs of the tokens
+     * @param _supplies The initial supply of each token
+     */
+    @External
+    public void mintBatch(BigInteger[] _ids, BigInteger[] _supplies) {
+        Context.require(_ids.length == _supplies.length, "id/supply pairs mismatch");
+
+        final Address caller = Context.getCaller();
+        for (int i = 0; i < _ids.length; i++) {
+            Context.require(creators.get(_ids[i]) == null, "Token is already minted");
+            Context.require(_supplies[i].compareTo(BigInteger.ZERO) > 0, "Supply should be positive");
+            creators.set(_ids[i], caller);
+        }
+
+        // mint tokens
+        super._mintBatch(caller, _ids, _supplies);
     }
 
     /**
@@ -64,13 +94,31 @@ public abstract class IRC31MintBurn extends IRC31Basic {
      */
     @External
     public void burn(BigInteger _id, BigInteger _amount) {
-        Context.require(creators.get(_id) != null, "Invalid token id");
+        // a token which was never minted has no balance to burn, so the creator is not looked up
         Context.require(_amount.compareTo(BigInteger.ZERO) > 0, "Amount should be positive");
 
         // burn tokens
         super._burn(Context.getCaller(), _id, _amount);
     }
 
+    /**
+     * (Extension) Destroys multiple tokens for given amounts
+     *
+     * @param _ids     IDs of the tokens
+     * @param _amounts The amounts of tokens to burn
+     */
+    @External
+    public void burnBatch(BigInteger[] _ids, BigInteger[] _amounts) {
+        Context.require(_ids.length == _amounts.length, "id/amount pairs mismatch");
+        // a token which was never minted has no balance to burn, so the creators are not looked up
+        for (int i = 0; i < _ids.length; i++) {
+            Context.require(_amounts[i].compareTo(BigInteger.ZERO) > 0, "Amount should be positive");
+        }
+
+        // burn tokens
+        super._burnBatch(Context.getCaller(), _ids, _amounts);
+    }
+
     /**
      * Updates the given token URI
      *
@@ -83,4 +131,17 @@ public abstract class IRC31MintBurn extends IRC31Basic {
 
         super._setTokenURI(_id, _uri);
     }
+
+    /**
+     * Updates the base URI of the tokens without their own URI.
+     * Only the contract owner can call this method.
+     *
+     * @param _uri The URI template, where {@code {id}} is replaced with the token ID
+     */
+    @External
+    public void setBaseURI(String _uri) {
+        Context.require(Context.getCaller().equals(Context.getOwner()), "Only owner can call this method");
+
+        super._setBaseURI(_uri);
+    }
 }
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2021 ICONation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.token.irc31;
+
+import score.Context;
+import scorex.util.ArrayList;
+import scorex.util.HashMap;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * A list of (id, amount) pairs where the amounts of repeated IDs are summed up,
+ * so that each ID can be processed only once in a batch operation.
+ * The IDs are kept in the order of their first occurrence.
+ */
+class TokenAmounts {
+    private final HashMap<BigInteger, Integer> positions = new HashMap<>();
+    private final List<BigInteger> ids = new ArrayList<>();
+    private final List<BigInteger> amounts = new ArrayList<>();
+
+    /**
+     * Returns the merged (id, amount) pairs of the given arrays.
+     */
+    static TokenAmounts of(BigInteger[] ids, BigInteger[] amounts) {
+        Context.require(ids.length == amounts.length, "id/value pairs mismatch");
+        TokenAmounts result = new TokenAmounts();
+        for (int i = 0; i < ids.length; i++) {
+            result.add(ids[i], amounts[i]);
+        }
+        return result;
+    }
+
+    void add(BigInteger id, BigInteger amount) {
+        Integer position = positions.get(id);
+        if (position == null) {
+            positions.put(id, ids.size());
+            ids.add(id);
+            amounts.add(amount);
+        } else {
+            amounts.set(position, amounts.get(position).add(amount));
+        }
+    }
+
+    int size() {
+        return ids.size();
+    }
+
+    BigInteger idAt(int index) {
+        return ids.get(index);
+    }
+
+    BigInteger amountAt(int index) {
+        return amounts.get(index);
+    }
+}
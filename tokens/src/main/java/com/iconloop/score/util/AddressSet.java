@@ -0,0 +1,75 @@
+/*
+ * Copyright 2021 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.util;
+
+import score.Address;
+import score.ObjectReader;
+import score.ObjectWriter;
+
+/**
+ * A set of addresses, such as token holders or a whitelist, with the same shape as {@link IntSet}.
+ * It only holds its storage ID, so it can be kept in a {@code VarDB} or a {@code DictDB}.
+ * It is a thin wrapper of {@link EnumerableSet} and has the same storage cost.
+ */
+public class AddressSet {
+    private final String id;
+    private final EnumerableSet<Address> set;
+
+    public AddressSet(String id) {
+        this.id = id;
+        this.set = new EnumerableSet<>(id, Address.class);
+    }
+
+    // for serialize
+    public static void writeObject(ObjectWriter w, AddressSet e) {
+        w.write(e.id);
+    }
+
+    // for de-serialize
+    public static AddressSet readObject(ObjectReader r) {
+        return new AddressSet(
+                r.readString()
+        );
+    }
+
+    public int length() {
+        return set.length();
+    }
+
+    public Address at(int index) {
+        return set.at(index);
+    }
+
+    public boolean contains(Address value) {
+        return set.contains(value);
+    }
+
+    public void add(Address value) {
+        set.add(value);
+    }
+
+    public void remove(Address value) {
+        set.remove(value);
+    }
+
+    /**
+     * Removes all values, reclaiming their storage.
+     */
+    public void clear() {
+        set.clear();
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2021 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.util;
+
+import score.Context;
+import score.DictDB;
+
+import java.math.BigInteger;
+
+/**
+ * A set of non-negative integers stored as a bitmap, packing {@value #WORD_BITS} flags into each storage word.
+ * Adjacent flags share a word, so marking a run of sequential flags touches one word per {@value #WORD_BITS} flags.
+ */
+public class BitSet {
+    public static final int WORD_BITS = 256;
+    // log2(WORD_BITS)
+    private static final int WORD_SHIFT = 8;
+    private static final BigInteger WORD_MASK = BigInteger.ONE.shiftLeft(WORD_BITS).subtract(BigInteger.ONE);
+
+    // word index => 256 flags (null if none of them is set)
+    private final DictDB<BigInteger, BigInteger> words;
+
+    public BitSet(String id) {
+        this.words = Context.newDictDB(id + "_words", BigInteger.class);
+    }
+
+    private static BigInteger wordIndexOf(BigInteger index) {
+        Context.require(index.signum() >= 0, "Negative index");
+        return index.shiftRight(WORD_SHIFT);
+    }
+
+    private static int bitOf(BigInteger index) {
+        return index.intValue() & (WORD_BITS - 1);
+    }
+
+    private BigInteger getWord(BigInteger wordIndex) {
+        return words.getOrDefault(wordIndex, BigInteger.ZERO);
+    }
+
+    private void setWord(BigInteger wordIndex, BigInteger word) {
+        words.set(wordIndex, (word.signum() != 0) ? word : null);
+    }
+
+    public boolean get(BigInteger index) {
+        return getWord(wordIndexOf(index)).testBit(bitOf(index));
+    }
+
+    /**
+     * Sets the flag at {@code index}, and returns true if it was not set before.
+     */
+    public boolean set(BigInteger index) {
+        BigInteger wordIndex = wordIndexOf(index);
+        BigInteger word = getWord(wordIndex);
+        int bit = bitOf(index);
+        if (word.testBit(bit)) {
+            return false;
+        }
+        setWord(wordIndex, word.setBit(bit));
+        return true;
+    }
+
+    /**
+     * Clears the flag at {@code index}, and returns true if it was set before.
+     */
+    public boolean clear(BigInteger index) {
+        BigInteger wordIndex = wordIndexOf(index);
+        BigInteger word = getWord(wordIndex);
+        int bit = bitOf(index);
+        if (!word.testBit(bit)) {
+            return false;
+        }
+        setWord(wordIndex, word.clearBit(bit));
+        return true;
+    }
+
+    /**
+     * Sets the flags from {@code fromIndex} (inclusive) to {@code toIndex} (exclusive),
+     * writing each word at most once.
+     */
+    public void setRange(BigInteger fromIndex, BigInteger toIndex) {
+        updateRange(fromIndex, toIndex, true);
+    }
+
+    /**
+     * Clears the flags from {@code fromIndex} (inclusive) to {@code toIndex} (exclusive),
+     * writing each word at most once.
+     */
+    public void clearRange(BigInteger fromIndex, BigInteger toIndex) {
+        updateRange(fromIndex, toIndex, false);
+    }
+
+    private void updateRange(BigInteger fromIndex, BigInteger toIndex, boolean value) {
+        Context.require(fromIndex.compareTo(toIndex) <= 0, "Invalid range");
+        if (fromIndex.equals(toIndex)) {
+            return;
+        }
+        BigInteger lastIndex = toIndex.subtract(BigInteger.ONE);
+        BigInteger firstWord = wordIndexOf(fromIndex);
+        BigInteger lastWord = wordIndexOf(lastIndex);
+        for (BigInteger w = firstWord; w.compareTo(lastWord) <= 0; w = w.add(BigInteger.ONE)) {
+            int from = w.equals(firstWord) ? bitOf(fromIndex) : 0;
+            int to = w.equals(lastWord) ? bitOf(lastIndex) + 1 : WORD_BITS;
+            BigInteger mask = maskOf(from, to);
+            BigInteger word = getWord(w);
+            BigInteger updated = value ? word.or(mask) : word.andNot(mask);
+            if (!updated.equals(word)) {
+                setWord(w, updated);
+            }
+        }
+    }
+
+    private static BigInteger maskOf(int from, int to) {
+        if (from == 0 && to == WORD_BITS) {
+            return WORD_MASK;
+        }
+        return BigInteger.ONE.shiftLeft(to - from).subtract(BigInteger.ONE).shiftLeft(from);
+    }
+
+    /**
+     * Returns the number of flags set from {@code fromIndex} (inclusive) to {@code toIndex} (exclusive).
+     */
+    public int count(BigInteger fromIndex, BigInteger toIndex) {
+        Context.require(fromIndex.compareTo(toIndex) <= 0, "Invalid range");
+        if (fromIndex.equals(toIndex)) {
+            return 0;
+        }
+        BigInteger lastIndex = toIndex.subtract(BigInteger.ONE);
+        BigInteger firstWord = wordIndexOf(fromIndex);
+        BigInteger lastWord = wordIndexOf(lastIndex);
+        int count = 0;
+        for (BigInteger w = firstWord; w.compareTo(lastWord) <= 0; w = w.add(BigInteger.ONE)) {
+            int from = w.equals(firstWord) ? bitOf(fromIndex) : 0;
+            int to = w.equals(lastWord) ? bitOf(lastIndex) + 1 : WORD_BITS;
+            count += getWord(w).and(maskOf(from, to)).bitCount();
+        }
+        return count;
+    }
+}
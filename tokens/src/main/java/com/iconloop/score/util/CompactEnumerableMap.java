@@ -0,0 +1,237 @@
+/*
+ * Copyright 2021 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.util;
+
+import score.ArrayDB;
+import score.ByteArrayObjectWriter;
+import score.Context;
+import score.DictDB;
+import score.ObjectReader;
+import scorex.util.ArrayList;
+import scorex.util.HashMap;
+
+import java.util.List;
+
+/**
+ * An {@link EnumerableMap} variant which stores the value and the array index of a key in a single record,
+ * so that adding a key costs one write less.
+ * Removing the last key costs one write less, but removing any other key costs one read more and one write less,
+ * since the record of the key moved into its place has to be read to be rewritten with the new index.
+ * It has the same API as {@link EnumerableMap}, but does not share its storage layout.
+ */
+public class CompactEnumerableMap<K, V> {
+    // array of keys
+    private final ArrayDB<K> keys;
+    // key => RLP-encoded [value, array index + 1]
+    private final DictDB<K, byte[]> records;
+    private final Class<V> valueClass;
+
+    public CompactEnumerableMap(String id, Class<K> keyClass, Class<V> valueClass) {
+        this.keys = Context.newArrayDB(id + "_keys", keyClass);
+        this.records = Context.newDictDB(id + "_records", byte[].class);
+        this.valueClass = valueClass;
+    }
+
+    private static class Record<V> {
+        private final V value;
+        private final int index;
+
+        Record(V value, int index) {
+            this.value = value;
+            this.index = index;
+        }
+    }
+
+    private Record<V> getRecord(K key) {
+        byte[] bytes = records.get(key);
+        if (bytes == null) {
+            return null;
+        }
+        ObjectReader reader = Context.newByteArrayObjectReader("RLPn", bytes);
+        reader.beginList();
+        V value = reader.read(valueClass);
+        int index = reader.readInt();
+        reader.end();
+        return new Record<>(value, index);
+    }
+
+    private void setRecord(K key, V value, int index) {
+        ByteArrayObjectWriter writer = Context.newByteArrayObjectWriter("RLPn");
+        writer.beginList(2);
+        writer.write(value);
+        writer.write(index);
+        writer.end();
+        records.set(key, writer.toByteArray());
+    }
+
+    public int length() {
+        return keys.size();
+    }
+
+    public boolean contains(K key) {
+        return records.get(key) != null;
+    }
+
+    public K getKey(int index) {
+        return keys.get(index);
+    }
+
+    /**
+     * Returns up to {@code limit} keys, starting from {@code offset}.
+     */
+    public List<K> slice(int offset, int limit) {
+        Context.require(offset >= 0 && limit >= 0, "Invalid offset or limit");
+        int count = Math.min(Math.max(length() - offset, 0), limit);
+        List<K> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(keys.get(offset + i));
+        }
+        return result;
+    }
+
+    public V get(K key) {
+        Record<V> record = getRecord(key);
+        return (record != null) ? record.value : null;
+    }
+
+    public V getOrThrow(K key, String msg) {
+        var entry = this.get(key);
+        if (entry != null) {
+            return entry;
+        }
+        Context.revert(msg);
+        return null; // should not reach here, but made compiler happy
+    }
+
+    public void set(K key, V value) {
+        Record<V> record = getRecord(key);
+        if (record != null) {
+            setRecord(key, value, record.index);
+        } else {
+            keys.add(key);
+            setRecord(key, value, keys.size());
+        }
+    }
+
+    /**
+     * Sets the value of {@code key} to {@code newValue} only if it is currently {@code oldValue}.
+     * Unlike a {@link #get(Object)} followed by a {@link #set(Object, Object)}, the record is read only once.
+     * Returns true if the value was replaced.
+     */
+    public boolean replace(K key, V oldValue, V newValue) {
+        Record<V> record = getRecord(key);
+        if (record == null || !record.value.equals(oldValue)) {
+            return false;
+        }
+        setRecord(key, newValue, record.index);
+        return true;
+    }
+
+    public void remove(K key) {
+        Record<V> record = getRecord(key);
+        if (record != null) {
+            removeRecord(key, record);
+        }
+    }
+
+    /**
+     * Removes {@code key} only if its value is currently {@code value}.
+     * Unlike a {@link #get(Object)} followed by a {@link #remove(Object)}, the record is read only once.
+     * Returns true if the key was removed.
+     */
+    public boolean remove(K key, V value) {
+        Record<V> record = getRecord(key);
+        if (record == null || !record.value.equals(value)) {
+            return false;
+        }
+        removeRecord(key, record);
+        return true;
+    }
+
+    private void removeRecord(K key, Record<V> record) {
+        // pop and swap with the last entry
+        int lastIndex = keys.size();
+        K lastKey = keys.pop();
+        records.set(key, null);
+        if (lastIndex != record.index) {
+            keys.set(record.index - 1, lastKey);
+            setRecord(lastKey, get(lastKey), record.index);
+        }
+    }
+
+    /**
+     * Sets {@code values[i]} for {@code keys[i]} for each i, reading the size only once.
+     */
+    public void setAll(K[] keys, V[] values) {
+        Context.require(keys.length == values.length, "key/value pairs mismatch");
+        int size = this.keys.size();
+        for (int i = 0; i < keys.length; i++) {
+            Record<V> record = getRecord(keys[i]);
+            if (record != null) {
+                setRecord(keys[i], values[i], record.index);
+            } else {
+                this.keys.add(keys[i]);
+                setRecord(keys[i], values[i], ++size);
+            }
+        }
+    }
+
+    /**
+     * Removes all of {@code keys}, reading the size only once.
+     * An entry which is removed as well is never moved into the place of a removed entry,
+     * so no record is rewritten only to be cleared later.
+     */
+    public void removeAll(K[] keys) {
+        // key => array index + 1, for the keys to be removed
+        var pending = new HashMap<K, Integer>();
+        for (K key : keys) {
+            Record<V> record = getRecord(key);
+            if (record != null) {
+                pending.put(key, record.index);
+            }
+        }
+        int size = this.keys.size();
+        for (K key : keys) {
+            Integer keyIndex = pending.remove(key);
+            if (keyIndex == null) {
+                continue;
+            }
+            records.set(key, null);
+            // drop the trailing entries to be removed, then pop and swap with the last entry
+            K lastKey = this.keys.get(size - 1);
+            while (size > keyIndex && pending.remove(lastKey) != null) {
+                records.set(lastKey, null);
+                this.keys.removeLast();
+                lastKey = this.keys.get(--size - 1);
+            }
+            this.keys.removeLast();
+            if (size-- != keyIndex) {
+                this.keys.set(keyIndex - 1, lastKey);
+                setRecord(lastKey, get(lastKey), keyIndex);
+            }
+        }
+    }
+
+    /**
+     * Removes all entries, reclaiming the storage of the keys and the records.
+     */
+    public void clear() {
+        for (int size = keys.size(); size > 0; size--) {
+            records.set(keys.pop(), null);
+        }
+    }
+}
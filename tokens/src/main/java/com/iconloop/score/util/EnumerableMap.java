@@ -19,6 +19,8 @@ package com.iconloop.score.util;
 import score.Context;
 import score.DictDB;
 
+import java.util.List;
+
 public class EnumerableMap<K, V> {
     private final EnumerableSet<K> keys;
     private final DictDB<K, V> values;
@@ -40,6 +42,13 @@ public class EnumerableMap<K, V> {
         return keys.at(index);
     }
 
+    /**
+     * Returns up to {@code limit} keys, starting from {@code offset}.
+     */
+    public List<K> slice(int offset, int limit) {
+        return keys.slice(offset, limit);
+    }
+
     public V get(K key) {
         return values.get(key);
     }
@@ -62,4 +71,34 @@ public class EnumerableMap<K, V> {
         values.set(key, null);
         keys.remove(key);
     }
+
+    /**
+     * Sets {@code values[i]} for {@code keys[i]} for each i.
+     */
+    public void setAll(K[] keys, V[] values) {
+        Context.require(keys.length == values.length, "key/value pairs mismatch");
+        for (int i = 0; i < keys.length; i++) {
+            this.values.set(keys[i], values[i]);
+        }
+        this.keys.addAll(keys);
+    }
+
+    /**
+     * Removes all of {@code keys}, clearing the values of only the keys which were in the map.
+     */
+    public void removeAll(K[] keys) {
+        for (K key : this.keys.removeAll(keys)) {
+            values.set(key, null);
+        }
+    }
+
+    /**
+     * Removes all entries, reclaiming the storage of the keys and the values.
+     */
+    public void clear() {
+        // pop each key once, clearing its index and its value together
+        for (int size = keys.length(); size > 0; size--) {
+            values.set(keys.pop(), null);
+        }
+    }
 }
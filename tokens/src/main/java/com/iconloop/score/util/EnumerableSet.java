@@ -19,6 +19,10 @@ package com.iconloop.score.util;
 import score.ArrayDB;
 import score.Context;
 import score.DictDB;
+import scorex.util.ArrayList;
+import scorex.util.HashMap;
+
+import java.util.List;
 
 public class EnumerableSet<V> {
     private final ArrayDB<V> entries;
@@ -39,6 +43,19 @@ public class EnumerableSet<V> {
         return entries.get(index);
     }
 
+    /**
+     * Returns up to {@code limit} values, starting from {@code offset}.
+     */
+    public List<V> slice(int offset, int limit) {
+        Context.require(offset >= 0 && limit >= 0, "Invalid offset or limit");
+        int count = Math.min(Math.max(length() - offset, 0), limit);
+        List<V> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(entries.get(offset + i));
+        }
+        return values;
+    }
+
     public boolean contains(V value) {
         return indexes.get(value) != null;
     }
@@ -60,6 +77,19 @@ public class EnumerableSet<V> {
         }
     }
 
+    /**
+     * Adds all of {@code values}, reading the size only once.
+     */
+    public void addAll(V[] values) {
+        int size = entries.size();
+        for (V value : values) {
+            if (!contains(value)) {
+                entries.add(value);
+                indexes.set(value, ++size);
+            }
+        }
+    }
+
     public void remove(V value) {
         var valueIndex = indexes.get(value);
         if (valueIndex != null) {
@@ -73,4 +103,64 @@ public class EnumerableSet<V> {
             }
         }
     }
+
+    /**
+     * Removes all of {@code values}, reading the size only once.
+     * An entry which is removed as well is never moved into the place of a removed entry,
+     * so no index is written only to be cleared later.
+     *
+     * @return the values which were in the set, each of them once
+     */
+    public List<V> removeAll(V[] values) {
+        // value => array index + 1, for the values to be removed
+        var pending = new HashMap<V, Integer>();
+        List<V> removed = new ArrayList<>();
+        for (V value : values) {
+            Integer valueIndex = indexes.get(value);
+            if (valueIndex != null && pending.put(value, valueIndex) == null) {
+                removed.add(value);
+            }
+        }
+        int size = entries.size();
+        for (V value : values) {
+            Integer valueIndex = pending.remove(value);
+            if (valueIndex == null) {
+                continue;
+            }
+            indexes.set(value, null);
+            // drop the trailing entries to be removed, then pop and swap with the last entry
+            V lastValue = entries.pop();
+            while (size > valueIndex && pending.remove(lastValue) != null) {
+                indexes.set(lastValue, null);
+                lastValue = entries.pop();
+                size--;
+            }
+            if (size-- != valueIndex) {
+                entries.set(valueIndex - 1, lastValue);
+                indexes.set(lastValue, valueIndex);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes the last value and returns it, or returns null if the set is empty.
+     */
+    public V pop() {
+        if (entries.size() == 0) {
+            return null;
+        }
+        V value = entries.pop();
+        indexes.set(value, null);
+        return value;
+    }
+
+    /**
+     * Removes all values, reclaiming the storage of the entries and the indexes.
+     */
+    public void clear() {
+        for (int size = entries.size(); size > 0; size--) {
+            indexes.set(entries.pop(), null);
+        }
+    }
 }
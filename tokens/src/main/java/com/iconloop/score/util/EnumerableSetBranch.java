@@ -0,0 +1,186 @@
+/*
+ * Copyright 2021 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.util;
+
+import score.BranchDB;
+import score.Context;
+import score.DictDB;
+import scorex.util.ArrayList;
+import scorex.util.HashMap;
+
+import java.util.List;
+
+/**
+ * A group of enumerable sets, one per key, stored under {@code BranchDB}s.
+ * Unlike a {@code DictDB} of {@link IntSet}, no object needs to be deserialized to reach a set,
+ * and the size of each set is kept in its own slot.
+ */
+public class EnumerableSetBranch<K, V> {
+    // key => set size
+    private final DictDB<K, Integer> sizes;
+    // key => (array index => value)
+    private final BranchDB<K, DictDB<Integer, V>> entries;
+    // key => (value => array index + 1)
+    private final BranchDB<K, DictDB<V, Integer>> indexes;
+
+    public EnumerableSetBranch(String id, Class<V> valueClass) {
+        this.sizes = Context.newDictDB(id + "_size", Integer.class);
+        this.entries = Context.newBranchDB(id + "_entries", valueClass);
+        this.indexes = Context.newBranchDB(id + "_indexes", Integer.class);
+    }
+
+    public int length(K key) {
+        return sizes.getOrDefault(key, 0);
+    }
+
+    /**
+     * Returns the value at {@code index} of the set for {@code key}, or null if the index is out of range.
+     */
+    public V at(K key, int index) {
+        return entries.at(key).get(index);
+    }
+
+    /**
+     * Returns up to {@code limit} values of the set for {@code key}, starting from {@code offset}.
+     */
+    public List<V> slice(K key, int offset, int limit) {
+        Context.require(offset >= 0 && limit >= 0, "Invalid offset or limit");
+        int count = Math.min(Math.max(length(key) - offset, 0), limit);
+        List<V> values = new ArrayList<>(count);
+        DictDB<Integer, V> keyEntries = entries.at(key);
+        for (int i = 0; i < count; i++) {
+            values.add(keyEntries.get(offset + i));
+        }
+        return values;
+    }
+
+    public boolean contains(K key, V value) {
+        return indexes.at(key).get(value) != null;
+    }
+
+    public Integer indexOf(K key, V value) {
+        // returns null if value doesn't exist
+        Integer result = indexes.at(key).get(value);
+        if (result != null) {
+            return result - 1;
+        }
+        return null;
+    }
+
+    public void add(K key, V value) {
+        DictDB<V, Integer> keyIndexes = indexes.at(key);
+        if (keyIndexes.get(value) == null) {
+            // add new value
+            int size = length(key);
+            entries.at(key).set(size, value);
+            keyIndexes.set(value, size + 1);
+            sizes.set(key, size + 1);
+        }
+    }
+
+    public void remove(K key, V value) {
+        DictDB<V, Integer> keyIndexes = indexes.at(key);
+        Integer valueIndex = keyIndexes.get(value);
+        if (valueIndex != null) {
+            // pop and swap with the last entry
+            DictDB<Integer, V> keyEntries = entries.at(key);
+            int lastIndex = length(key);
+            keyIndexes.set(value, null);
+            if (lastIndex != valueIndex) {
+                V lastValue = keyEntries.get(lastIndex - 1);
+                keyEntries.set(valueIndex - 1, lastValue);
+                keyIndexes.set(lastValue, valueIndex);
+            }
+            keyEntries.set(lastIndex - 1, null);
+            sizes.set(key, (lastIndex > 1) ? lastIndex - 1 : null);
+        }
+    }
+
+    /**
+     * Adds all of {@code values} to the set for {@code key}, writing the set size only once.
+     */
+    public void addAll(K key, V[] values) {
+        DictDB<V, Integer> keyIndexes = indexes.at(key);
+        DictDB<Integer, V> keyEntries = entries.at(key);
+        int size = length(key);
+        int oldSize = size;
+        for (V value : values) {
+            if (keyIndexes.get(value) == null) {
+                keyEntries.set(size, value);
+                keyIndexes.set(value, ++size);
+            }
+        }
+        if (size != oldSize) {
+            sizes.set(key, size);
+        }
+    }
+
+    /**
+     * Removes all of {@code values} from the set for {@code key}, writing the set size only once.
+     * An entry which is removed as well is never moved into the place of a removed entry,
+     * so no index is written only to be cleared later.
+     */
+    public void removeAll(K key, V[] values) {
+        DictDB<V, Integer> keyIndexes = indexes.at(key);
+        DictDB<Integer, V> keyEntries = entries.at(key);
+        // value => array index + 1, for the values to be removed
+        var pending = new HashMap<V, Integer>();
+        for (V value : values) {
+            Integer valueIndex = keyIndexes.get(value);
+            if (valueIndex != null) {
+                pending.put(value, valueIndex);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        int size = length(key);
+        for (V value : values) {
+            Integer valueIndex = pending.remove(value);
+            if (valueIndex == null) {
+                continue;
+            }
+            keyIndexes.set(value, null);
+            // drop the trailing entries to be removed, then pop and swap with the last entry
+            V lastValue = keyEntries.get(size - 1);
+            while (size > valueIndex && pending.remove(lastValue) != null) {
+                keyIndexes.set(lastValue, null);
+                keyEntries.set(--size, null);
+                lastValue = keyEntries.get(size - 1);
+            }
+            if (size != valueIndex) {
+                keyEntries.set(valueIndex - 1, lastValue);
+                keyIndexes.set(lastValue, valueIndex);
+            }
+            keyEntries.set(--size, null);
+        }
+        sizes.set(key, (size > 0) ? size : null);
+    }
+
+    /**
+     * Removes all values of the set for {@code key}, reclaiming the storage of the entries and the indexes.
+     */
+    public void clear(K key) {
+        DictDB<V, Integer> keyIndexes = indexes.at(key);
+        DictDB<Integer, V> keyEntries = entries.at(key);
+        for (int i = length(key) - 1; i >= 0; i--) {
+            keyIndexes.set(keyEntries.get(i), null);
+            keyEntries.set(i, null);
+        }
+        sizes.set(key, null);
+    }
+}
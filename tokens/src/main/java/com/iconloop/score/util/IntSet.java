@@ -50,6 +50,10 @@ public class IntSet {
         return set.at(index);
     }
 
+    public boolean contains(BigInteger value) {
+        return set.contains(value);
+    }
+
     public void add(BigInteger value) {
         set.add(value);
     }
@@ -57,4 +61,11 @@ public class IntSet {
     public void remove(BigInteger value) {
         set.remove(value);
     }
+
+    /**
+     * Removes all values, reclaiming their storage.
+     */
+    public void clear() {
+        set.clear();
+    }
 }
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2021 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.util;
+
+import score.ByteArrayObjectWriter;
+import score.Context;
+import score.DictDB;
+import score.ObjectReader;
+import score.VarDB;
+import scorex.util.ArrayList;
+
+import java.util.List;
+
+/**
+ * A map which enumerates its keys in insertion order, as a doubly linked list of storage entries.
+ * <p>
+ * Unlike {@link EnumerableMap}, removing a key does not move any other key, so the enumeration
+ * is stable while entries are added and removed. Each key is assigned an increasing sequence number
+ * when it is added, which serves as the cursor for paging with {@link #page(long, int)}.
+ * Setting the value of an existing key keeps its position.
+ * <p>
+ * A removed key leaves a tombstone with its neighbors at the time of removal in place of its node,
+ * so that a cursor at a removed key resumes without scanning. Tombstones are small but never reclaimed.
+ */
+public class LinkedEnumerableMap<K, V> {
+    // key => RLP-encoded [sequence number, value]
+    private final DictDB<K, byte[]> records;
+    // sequence number => RLP-encoded [previous sequence number, next sequence number, key] (0 if none),
+    // or [previous sequence number, next sequence number] at the time of removal for a removed key
+    private final DictDB<Long, byte[]> nodes;
+    private final VarDB<Long> head;
+    private final VarDB<Long> tail;
+    private final VarDB<Long> lastSeq;
+    private final VarDB<Integer> size;
+    private final Class<K> keyClass;
+    private final Class<V> valueClass;
+
+    public LinkedEnumerableMap(String id, Class<K> keyClass, Class<V> valueClass) {
+        this.records = Context.newDictDB(id + "_records", byte[].class);
+        this.nodes = Context.newDictDB(id + "_nodes", byte[].class);
+        this.head = Context.newVarDB(id + "_head", Long.class);
+        this.tail = Context.newVarDB(id + "_tail", Long.class);
+        this.lastSeq = Context.newVarDB(id + "_last_seq", Long.class);
+        this.size = Context.newVarDB(id + "_size", Integer.class);
+        this.keyClass = keyClass;
+        this.valueClass = valueClass;
+    }
+
+    private static class Record<V> {
+        private final long seq;
+        private final V value;
+
+        Record(long seq, V value) {
+            this.seq = seq;
+            this.value = value;
+        }
+    }
+
+    private static class Node<K> {
+        private final long seq;
+        // null for a tombstone
+        private final K key;
+        private long prev;
+        private long next;
+
+        Node(long seq, K key, long prev, long next) {
+            this.seq = seq;
+            this.key = key;
+            this.prev = prev;
+            this.next = next;
+        }
+    }
+
+    /**
+     * A page of keys, along with the cursor to pass for the next page.
+     */
+    public static class Page<K> {
+        private final List<K> keys;
+        private final long cursor;
+
+        Page(List<K> keys, long cursor) {
+            this.keys = keys;
+            this.cursor = cursor;
+        }
+
+        public List<K> getKeys() {
+            return keys;
+        }
+
+        public long getCursor() {
+            return cursor;
+        }
+    }
+
+    private Record<V> getRecord(K key) {
+        byte[] bytes = records.get(key);
+        if (bytes == null) {
+            return null;
+        }
+        ObjectReader reader = Context.newByteArrayObjectReader("RLPn", bytes);
+        reader.beginList();
+        long seq = reader.readLong();
+        V value = reader.read(valueClass);
+        reader.end();
+        return new Record<>(seq, value);
+    }
+
+    private void setRecord(K key, long seq, V value) {
+        ByteArrayObjectWriter writer = Context.newByteArrayObjectWriter("RLPn");
+        writer.beginList(2);
+        writer.write(seq);
+        writer.write(value);
+        writer.end();
+        records.set(key, writer.toByteArray());
+    }
+
+    private Node<K> getNode(long seq) {
+        byte[] bytes = nodes.get(seq);
+        if (bytes == null) {
+            return null;
+        }
+        ObjectReader reader = Context.newByteArrayObjectReader("RLPn", bytes);
+        reader.beginList();
+        long prev = reader.readLong();
+        long next = reader.readLong();
+        K key = reader.hasNext() ? reader.read(keyClass) : null;
+        reader.end();
+        return new Node<>(seq, key, prev, next);
+    }
+
+    private void setNode(Node<K> node) {
+        ByteArrayObjectWriter writer = Context.newByteArrayObjectWriter("RLPn");
+        writer.beginList((node.key != null) ? 3 : 2);
+        writer.write(node.prev);
+        writer.write(node.next);
+        if (node.key != null) {
+            writer.write(node.key);
+        }
+        writer.end();
+        nodes.set(node.seq, writer.toByteArray());
+    }
+
+    public int length() {
+        return size.getOrDefault(0);
+    }
+
+    public boolean contains(K key) {
+        return records.get(key) != null;
+    }
+
+    public V get(K key) {
+        Record<V> record = getRecord(key);
+        return (record != null) ? record.value : null;
+    }
+
+    public V getOrThrow(K key, String msg) {
+        var entry = this.get(key);
+        if (entry != null) {
+            return entry;
+        }
+        Context.revert(msg);
+        return null; // should not reach here, but made compiler happy
+    }
+
+    /**
+     * Returns the oldest key, or null if the map is empty.
+     */
+    public K first() {
+        long seq = head.getOrDefault(0L);
+        return (seq != 0) ? getNode(seq).key : null;
+    }
+
+    /**
+     * Returns the newest key, or null if the map is empty.
+     */
+    public K last() {
+        long seq = tail.getOrDefault(0L);
+        return (seq != 0) ? getNode(seq).key : null;
+    }
+
+    /**
+     * Sets the value of {@code key}, appending the key to the end if it does not exist.
+     */
+    public void set(K key, V value) {
+        Record<V> record = getRecord(key);
+        if (record != null) {
+            setRecord(key, record.seq, value);
+            return;
+        }
+        long seq = lastSeq.getOrDefault(0L) + 1;
+        lastSeq.set(seq);
+        long last = tail.getOrDefault(0L);
+        if (last != 0) {
+            Node<K> lastNode = getNode(last);
+            lastNode.next = seq;
+            setNode(lastNode);
+        } else {
+            head.set(seq);
+        }
+        tail.set(seq);
+        setNode(new Node<>(seq, key, last, 0));
+        setRecord(key, seq, value);
+        size.set(length() + 1);
+    }
+
+    /**
+     * Removes {@code key}, unlinking it from its neighbors without moving any other key.
+     */
+    public void remove(K key) {
+        Record<V> record = getRecord(key);
+        if (record == null) {
+            return;
+        }
+        Node<K> node = getNode(record.seq);
+        if (node.prev != 0) {
+            Node<K> prev = getNode(node.prev);
+            prev.next = node.next;
+            setNode(prev);
+        } else {
+            head.set((node.next != 0) ? node.next : null);
+        }
+        if (node.next != 0) {
+            Node<K> next = getNode(node.next);
+            next.prev = node.prev;
+            setNode(next);
+        } else {
+            tail.set((node.prev != 0) ? node.prev : null);
+        }
+        // leave a tombstone, so that a cursor at the key can still be resumed
+        setNode(new Node<>(node.seq, null, node.prev, node.next));
+        records.set(key, null);
+        int newSize = length() - 1;
+        size.set((newSize > 0) ? newSize : null);
+    }
+
+    /**
+     * Returns up to {@code limit} keys added after the one at {@code cursor}, in insertion order.
+     * Pass zero to start from the first key, and the cursor of the returned page to fetch the next page.
+     * <p>
+     * A cursor stays valid even if its key has been removed since, in which case the page starts from
+     * the next key still present. It is found through the tombstone of the key in a single read,
+     * plus one read per neighbor removed after the key.
+     */
+    public Page<K> page(long cursor, int limit) {
+        Context.require(cursor >= 0 && limit >= 0, "Invalid cursor or limit");
+        List<K> keys = new ArrayList<>();
+        Node<K> node = (cursor != 0) ? nodeAfter(cursor) : nodeAt(head.getOrDefault(0L));
+        long next = cursor;
+        while (node != null && keys.size() < limit) {
+            keys.add(node.key);
+            next = node.seq;
+            node = nodeAt(node.next);
+        }
+        return new Page<>(keys, next);
+    }
+
+    private Node<K> nodeAt(long seq) {
+        return (seq != 0) ? getNode(seq) : null;
+    }
+
+    // returns the first node still linked after the node or the tombstone at seq, or null if there is none
+    private Node<K> nodeAfter(long seq) {
+        Node<K> node = getNode(seq);
+        Context.require(node != null, "Invalid cursor");
+        // each step moves to a neighbor which was still linked when the previous one was removed
+        while (node.key == null) {
+            if (node.next != 0) {
+                // the next node, or the first node linked after it if it was removed as well
+                Node<K> next = getNode(node.next);
+                if (next.key != null) {
+                    return next;
+                }
+                node = next;
+            } else if (node.prev != 0) {
+                // the removed key was the last one, so the keys added since follow the previous node
+                node = getNode(node.prev);
+                if (node.key != null) {
+                    return nodeAt(node.next);
+                }
+            } else {
+                // the removed key was the only one, so every key present was added since
+                return nodeAt(head.getOrDefault(0L));
+            }
+        }
+        return nodeAt(node.next);
+    }
+
+    /**
+     * Removes all entries, reclaiming the storage of the records and replacing the nodes with tombstones
+     * which resume from the first key added afterwards.
+     */
+    public void clear() {
+        long seq = head.getOrDefault(0L);
+        while (seq != 0) {
+            Node<K> node = getNode(seq);
+            records.set(node.key, null);
+            setNode(new Node<>(seq, null, 0, 0));
+            seq = node.next;
+        }
+        head.set(null);
+        tail.set(null);
+        size.set(null);
+    }
+}
@@ -0,0 +1,446 @@
+/*
+ * Copyright 2021 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.util;
+
+import score.ByteArrayObjectWriter;
+import score.Context;
+import score.DictDB;
+import score.ObjectReader;
+import score.VarDB;
+import scorex.util.ArrayList;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * A sorted set of {@code BigInteger} keys stored as a B+tree, one node per {@code DictDB} entry.
+ * <p>
+ * Insertion, removal and lookups read one node per level, and range scans walk the linked leaves.
+ * The order (the maximum number of keys per node) trades the number of nodes read per lookup
+ * against the size of each node written.
+ * <p>
+ * Nodes are split when they overflow and dropped when they become empty, but underfull nodes are not merged,
+ * so the height depends on the largest size the set has ever had rather than on its current size.
+ */
+public class SortedIndex {
+    public static final int DEFAULT_ORDER = 32;
+
+    private final int order;
+    // node ID => RLP-encoded node
+    private final DictDB<Integer, byte[]> nodes;
+    // ID of the root node (null if the set is empty)
+    private final VarDB<Integer> root;
+    private final VarDB<Integer> lastNodeId;
+    private final VarDB<Integer> size;
+
+    public SortedIndex(String id) {
+        this(id, DEFAULT_ORDER);
+    }
+
+    public SortedIndex(String id, int order) {
+        Context.require(order >= 3, "Order must be at least 3");
+        this.order = order;
+        this.nodes = Context.newDictDB(id + "_nodes", byte[].class);
+        this.root = Context.newVarDB(id + "_root", Integer.class);
+        this.lastNodeId = Context.newVarDB(id + "_last_node", Integer.class);
+        this.size = Context.newVarDB(id + "_size", Integer.class);
+    }
+
+    private static class Node {
+        private final int id;
+        private final boolean leaf;
+        private List<BigInteger> keys = new ArrayList<>();
+        // child node IDs of an internal node, where the child at i holds the keys in [keys[i-1], keys[i])
+        private List<Integer> children = new ArrayList<>();
+        // neighbor leaf IDs of a leaf node (0 if none)
+        private int prev;
+        private int next;
+
+        Node(int id, boolean leaf) {
+            this.id = id;
+            this.leaf = leaf;
+        }
+
+        boolean isEmpty() {
+            return leaf ? keys.isEmpty() : children.isEmpty();
+        }
+    }
+
+    private Node newNode(boolean leaf) {
+        int id = lastNodeId.getOrDefault(0) + 1;
+        lastNodeId.set(id);
+        return new Node(id, leaf);
+    }
+
+    private Node load(int id) {
+        ObjectReader reader = Context.newByteArrayObjectReader("RLPn", nodes.get(id));
+        reader.beginList();
+        Node node = new Node(id, reader.readBoolean());
+        if (node.leaf) {
+            node.prev = reader.readInt();
+            node.next = reader.readInt();
+        }
+        reader.beginList();
+        while (reader.hasNext()) {
+            node.keys.add(reader.readBigInteger());
+        }
+        reader.end();
+        if (!node.leaf) {
+            reader.beginList();
+            while (reader.hasNext()) {
+                node.children.add(reader.readInt());
+            }
+            reader.end();
+        }
+        reader.end();
+        return node;
+    }
+
+    private void save(Node node) {
+        ByteArrayObjectWriter writer = Context.newByteArrayObjectWriter("RLPn");
+        writer.beginList(node.leaf ? 4 : 3);
+        writer.write(node.leaf);
+        if (node.leaf) {
+            writer.write(node.prev);
+            writer.write(node.next);
+        }
+        writer.beginList(node.keys.size());
+        for (BigInteger key : node.keys) {
+            writer.write(key);
+        }
+        writer.end();
+        if (!node.leaf) {
+            writer.beginList(node.children.size());
+            for (int child : node.children) {
+                writer.write(child);
+            }
+            writer.end();
+        }
+        writer.end();
+        nodes.set(node.id, writer.toByteArray());
+    }
+
+    private void delete(Node node) {
+        nodes.set(node.id, null);
+    }
+
+    // returns the number of keys less than key
+    private static int lowerBound(List<BigInteger> keys, BigInteger key) {
+        int low = 0;
+        int high = keys.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys.get(mid).compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // returns the number of keys less than or equal to key
+    private static int upperBound(List<BigInteger> keys, BigInteger key) {
+        int low = 0;
+        int high = keys.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys.get(mid).compareTo(key) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static <T> List<T> copy(List<T> list, int from, int to) {
+        List<T> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            result.add(list.get(i));
+        }
+        return result;
+    }
+
+    public int size() {
+        return size.getOrDefault(0);
+    }
+
+    // returns the leaf which would hold key, or null if the set is empty
+    private Node findLeaf(BigInteger key) {
+        Integer rootId = root.get();
+        if (rootId == null) {
+            return null;
+        }
+        Node node = load(rootId);
+        while (!node.leaf) {
+            node = load(node.children.get(upperBound(node.keys, key)));
+        }
+        return node;
+    }
+
+    // returns the leftmost or the rightmost leaf, or null if the set is empty
+    private Node edgeLeaf(boolean rightmost) {
+        Integer rootId = root.get();
+        if (rootId == null) {
+            return null;
+        }
+        Node node = load(rootId);
+        while (!node.leaf) {
+            node = load(node.children.get(rightmost ? node.children.size() - 1 : 0));
+        }
+        return node;
+    }
+
+    public boolean contains(BigInteger key) {
+        Node leaf = findLeaf(key);
+        if (leaf == null) {
+            return false;
+        }
+        int i = lowerBound(leaf.keys, key);
+        return i < leaf.keys.size() && leaf.keys.get(i).equals(key);
+    }
+
+    /**
+     * Adds {@code key}, and returns true if it was not in the set.
+     */
+    public boolean add(BigInteger key) {
+        Integer rootId = root.get();
+        if (rootId == null) {
+            Node leaf = newNode(true);
+            leaf.keys.add(key);
+            save(leaf);
+            root.set(leaf.id);
+            size.set(1);
+            return true;
+        }
+        // descend to the leaf, remembering the path
+        List<Node> path = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        Node node = load(rootId);
+        while (!node.leaf) {
+            int position = upperBound(node.keys, key);
+            path.add(node);
+            positions.add(position);
+            node = load(node.children.get(position));
+        }
+        int i = lowerBound(node.keys, key);
+        if (i < node.keys.size() && node.keys.get(i).equals(key)) {
+            return false;
+        }
+        node.keys.add(i, key);
+        size.set(size() + 1);
+
+        // split the overflowing nodes up to the root
+        int level = path.size();
+        while (node.keys.size() > order) {
+            Node right = newNode(node.leaf);
+            int mid = node.keys.size() / 2;
+            BigInteger separator;
+            if (node.leaf) {
+                right.keys = copy(node.keys, mid, node.keys.size());
+                node.keys = copy(node.keys, 0, mid);
+                separator = right.keys.get(0);
+                right.prev = node.id;
+                right.next = node.next;
+                if (node.next != 0) {
+                    Node next = load(node.next);
+                    next.prev = right.id;
+                    save(next);
+                }
+                node.next = right.id;
+            } else {
+                separator = node.keys.get(mid);
+                right.keys = copy(node.keys, mid + 1, node.keys.size());
+                right.children = copy(node.children, mid + 1, node.children.size());
+                node.keys = copy(node.keys, 0, mid);
+                node.children = copy(node.children, 0, mid + 1);
+            }
+            save(right);
+            save(node);
+            if (level == 0) {
+                Node newRoot = newNode(false);
+                newRoot.keys.add(separator);
+                newRoot.children.add(node.id);
+                newRoot.children.add(right.id);
+                save(newRoot);
+                root.set(newRoot.id);
+                return true;
+            }
+            level--;
+            Node parent = path.get(level);
+            int position = positions.get(level);
+            parent.keys.add(position, separator);
+            parent.children.add(position + 1, right.id);
+            node = parent;
+        }
+        save(node);
+        return true;
+    }
+
+    /**
+     * Removes {@code key}, and returns true if it was in the set.
+     */
+    public boolean remove(BigInteger key) {
+        Integer rootId = root.get();
+        if (rootId == null) {
+            return false;
+        }
+        // descend to the leaf, remembering the path
+        List<Node> path = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        Node node = load(rootId);
+        while (!node.leaf) {
+            int position = upperBound(node.keys, key);
+            path.add(node);
+            positions.add(position);
+            node = load(node.children.get(position));
+        }
+        int i = lowerBound(node.keys, key);
+        if (i == node.keys.size() || !node.keys.get(i).equals(key)) {
+            return false;
+        }
+        node.keys.remove(i);
+        int newSize = size() - 1;
+        size.set((newSize > 0) ? newSize : null);
+
+        // drop the empty nodes up to the root
+        int level = path.size();
+        while (node.isEmpty() && level > 0) {
+            if (node.leaf) {
+                unlink(node);
+            }
+            delete(node);
+            level--;
+            Node parent = path.get(level);
+            int position = positions.get(level);
+            parent.children.remove(position);
+            if (!parent.keys.isEmpty()) {
+                parent.keys.remove((position > 0) ? position - 1 : 0);
+            }
+            node = parent;
+        }
+        if (node.isEmpty()) {
+            // the root itself became empty
+            delete(node);
+            root.set(null);
+        } else if (level == 0 && !node.leaf && node.children.size() == 1) {
+            // the root has a single child left
+            delete(node);
+            root.set(node.children.get(0));
+        } else {
+            save(node);
+        }
+        return true;
+    }
+
+    private void unlink(Node leaf) {
+        if (leaf.prev != 0) {
+            Node prev = load(leaf.prev);
+            prev.next = leaf.next;
+            save(prev);
+        }
+        if (leaf.next != 0) {
+            Node next = load(leaf.next);
+            next.prev = leaf.prev;
+            save(next);
+        }
+    }
+
+    /**
+     * Returns the smallest key, or null if the set is empty.
+     */
+    public BigInteger first() {
+        Node leaf = edgeLeaf(false);
+        return (leaf != null) ? leaf.keys.get(0) : null;
+    }
+
+    /**
+     * Returns the largest key, or null if the set is empty.
+     */
+    public BigInteger last() {
+        Node leaf = edgeLeaf(true);
+        return (leaf != null) ? leaf.keys.get(leaf.keys.size() - 1) : null;
+    }
+
+    /**
+     * Returns the smallest key greater than {@code key}, or null if there is none.
+     */
+    public BigInteger higher(BigInteger key) {
+        List<BigInteger> keys = ascending(key.add(BigInteger.ONE), null, 1);
+        return keys.isEmpty() ? null : keys.get(0);
+    }
+
+    /**
+     * Returns the largest key less than {@code key}, or null if there is none.
+     */
+    public BigInteger lower(BigInteger key) {
+        List<BigInteger> keys = descending(null, key, 1);
+        return keys.isEmpty() ? null : keys.get(0);
+    }
+
+    /**
+     * Returns up to {@code limit} keys in [{@code from}, {@code to}) in ascending order.
+     * A null bound means that the range is unbounded on that side.
+     * To fetch the next page, pass the last key returned plus one as {@code from}.
+     */
+    public List<BigInteger> ascending(BigInteger from, BigInteger to, int limit) {
+        Context.require(limit >= 0, "Invalid limit");
+        List<BigInteger> result = new ArrayList<>();
+        Node leaf = (from != null) ? findLeaf(from) : edgeLeaf(false);
+        int i = (leaf != null && from != null) ? lowerBound(leaf.keys, from) : 0;
+        while (leaf != null && result.size() < limit) {
+            for (; i < leaf.keys.size() && result.size() < limit; i++) {
+                BigInteger key = leaf.keys.get(i);
+                if (to != null && key.compareTo(to) >= 0) {
+                    return result;
+                }
+                result.add(key);
+            }
+            leaf = (leaf.next != 0) ? load(leaf.next) : null;
+            i = 0;
+        }
+        return result;
+    }
+
+    /**
+     * Returns up to {@code limit} keys in [{@code from}, {@code to}) in descending order.
+     * A null bound means that the range is unbounded on that side.
+     * To fetch the next page, pass the last key returned as {@code to}.
+     */
+    public List<BigInteger> descending(BigInteger from, BigInteger to, int limit) {
+        Context.require(limit >= 0, "Invalid limit");
+        List<BigInteger> result = new ArrayList<>();
+        Node leaf = (to != null) ? findLeaf(to) : edgeLeaf(true);
+        if (leaf == null) {
+            return result;
+        }
+        int i = ((to != null) ? lowerBound(leaf.keys, to) : leaf.keys.size()) - 1;
+        while (leaf != null && result.size() < limit) {
+            for (; i >= 0 && result.size() < limit; i--) {
+                BigInteger key = leaf.keys.get(i);
+                if (from != null && key.compareTo(from) < 0) {
+                    return result;
+                }
+                result.add(key);
+            }
+            leaf = (leaf.prev != 0) ? load(leaf.prev) : null;
+            i = (leaf != null) ? leaf.keys.size() - 1 : -1;
+        }
+        return result;
+    }
+}
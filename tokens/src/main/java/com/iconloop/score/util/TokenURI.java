@@ -0,0 +1,57 @@
+/*
+ * Copyright 2021 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.util;
+
+import score.Context;
+
+import java.math.BigInteger;
+
+/**
+ * Expands token URI templates.
+ * As in IIP-31, the {@value #ID_PLACEHOLDER} placeholder in a template is replaced with the token ID
+ * in lowercase hexadecimal, zero-padded to 64 characters.
+ * A negative ID is written as its 256-bit two's complement, and an ID which does not fit in 256 bits is rejected.
+ */
+public final class TokenURI {
+    public static final String ID_PLACEHOLDER = "{id}";
+    private static final int ID_LENGTH = 64;
+    private static final int ID_BITS = ID_LENGTH * 4;
+
+    private TokenURI() {
+    }
+
+    /**
+     * Returns the URI of {@code id} built from {@code template}, or null if {@code template} is null.
+     */
+    public static String expand(String template, BigInteger id) {
+        if (template == null || !template.contains(ID_PLACEHOLDER)) {
+            return template;
+        }
+        if (id.signum() < 0) {
+            Context.require(id.bitLength() < ID_BITS, "Token ID out of range");
+            id = id.add(BigInteger.ONE.shiftLeft(ID_BITS));
+        }
+        Context.require(id.bitLength() <= ID_BITS, "Token ID out of range");
+        String hex = id.toString(16);
+        StringBuilder sb = new StringBuilder(ID_LENGTH);
+        for (int i = hex.length(); i < ID_LENGTH; i++) {
+            sb.append('0');
+        }
+        sb.append(hex);
+        return template.replace(ID_PLACEHOLDER, sb.toString());
+    }
+}
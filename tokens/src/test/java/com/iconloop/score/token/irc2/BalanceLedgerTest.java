@@ -0,0 +1,202 @@
+/*
+ * Copyright 2021 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.token.irc2;
+
+import com.iconloop.score.test.Account;
+import com.iconloop.score.test.Score;
+import com.iconloop.score.test.ServiceManager;
+import com.iconloop.score.test.TestBase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import score.Address;
+import score.Context;
+import score.DictDB;
+import score.UserRevertedException;
+import score.VarDB;
+import score.annotation.External;
+
+import java.lang.reflect.Field;
+import java.math.BigInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BalanceLedgerTest extends TestBase {
+    private static final ServiceManager sm = getServiceManager();
+    private static final Account owner = sm.createAccount();
+    private static final Account alice = sm.createAccount();
+    private static final Account bob = sm.createAccount();
+
+    private Score score;
+    private CountingDictDB balances;
+    private CountingVarDB totalSupply;
+
+    public static class LedgerToken extends IRC2Basic {
+        public LedgerToken(String _name, String _symbol, int _decimals) {
+            super(_name, _symbol, _decimals);
+        }
+
+        @External
+        public void mint(Address _owner, BigInteger _amount) {
+            Context.require(Context.getCaller().equals(Context.getOwner()));
+            _mint(_owner, _amount);
+        }
+
+        @External
+        public void burn(BigInteger _amount) {
+            _burn(Context.getCaller(), _amount);
+        }
+    }
+
+    // counts the storage operations of the wrapped database
+    static class CountingDictDB implements DictDB<Address, BigInteger> {
+        private final DictDB<Address, BigInteger> db;
+        int reads;
+        int writes;
+
+        CountingDictDB(DictDB<Address, BigInteger> db) {
+            this.db = db;
+        }
+
+        @Override
+        public void set(Address key, BigInteger value) {
+            writes++;
+            db.set(key, value);
+        }
+
+        @Override
+        public BigInteger get(Address key) {
+            reads++;
+            return db.get(key);
+        }
+
+        @Override
+        public BigInteger getOrDefault(Address key, BigInteger defaultValue) {
+            reads++;
+            return db.getOrDefault(key, defaultValue);
+        }
+    }
+
+    static class CountingVarDB implements VarDB<BigInteger> {
+        private final VarDB<BigInteger> db;
+        int reads;
+        int writes;
+
+        CountingVarDB(VarDB<BigInteger> db) {
+            this.db = db;
+        }
+
+        @Override
+        public void set(BigInteger value) {
+            writes++;
+            db.set(value);
+        }
+
+        @Override
+        public BigInteger get() {
+            reads++;
+            return db.get();
+        }
+
+        @Override
+        public BigInteger getOrDefault(BigInteger defaultValue) {
+            reads++;
+            return db.getOrDefault(defaultValue);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T wrap(Object instance, String name, Function<T, T> wrapper) throws Exception {
+        Field field = IRC2Basic.class.getDeclaredField(name);
+        field.setAccessible(true);
+        T wrapped = wrapper.apply((T) field.get(instance));
+        field.set(instance, wrapped);
+        return wrapped;
+    }
+
+    @BeforeEach
+    void setup() throws Exception {
+        score = sm.deploy(owner, LedgerToken.class, "Ledger", "LDG", 18);
+        score.invoke(owner, "mint", alice.getAddress(), BigInteger.valueOf(100));
+        balances = wrap(score.getInstance(), "balances", CountingDictDB::new);
+        totalSupply = wrap(score.getInstance(), "totalSupply", CountingVarDB::new);
+    }
+
+    private void assertAccesses(int balanceReads, int balanceWrites, int supplyReads, int supplyWrites) {
+        assertEquals(balanceReads, balances.reads, "balance reads");
+        assertEquals(balanceWrites, balances.writes, "balance writes");
+        assertEquals(supplyReads, totalSupply.reads, "supply reads");
+        assertEquals(supplyWrites, totalSupply.writes, "supply writes");
+    }
+
+    private void transfer(Account from, Account to, long value) {
+        score.invoke(from, "transfer", to.getAddress(), BigInteger.valueOf(value), new byte[0]);
+    }
+
+    @Test
+    void transfer() {
+        transfer(alice, bob, 10);
+        // one read and one write per side of the transfer
+        assertAccesses(2, 2, 0, 0);
+        assertEquals(BigInteger.valueOf(90), score.call("balanceOf", alice.getAddress()));
+        assertEquals(BigInteger.TEN, score.call("balanceOf", bob.getAddress()));
+    }
+
+    @Test
+    void selfTransfer() {
+        transfer(alice, alice, 10);
+        assertAccesses(1, 0, 0, 0);
+    }
+
+    @Test
+    void zeroValueTransfer() {
+        transfer(alice, bob, 0);
+        assertAccesses(2, 0, 0, 0);
+    }
+
+    @Test
+    void insufficientBalance() {
+        assertThrows(UserRevertedException.class, () -> transfer(alice, bob, 101));
+        assertAccesses(1, 0, 0, 0);
+    }
+
+    @Test
+    void transferBatch() {
+        Address[] to = {bob.getAddress(), owner.getAddress(), bob.getAddress()};
+        BigInteger[] values = {BigInteger.ONE, BigInteger.TWO, BigInteger.TEN};
+        score.invoke(alice, "transferBatch", to, values, new byte[0]);
+        // each distinct account is read and written once
+        assertAccesses(3, 3, 0, 0);
+        assertEquals(BigInteger.valueOf(11), score.call("balanceOf", bob.getAddress()));
+    }
+
+    @Test
+    void mint() {
+        score.invoke(owner, "mint", bob.getAddress(), BigInteger.TEN);
+        assertAccesses(1, 1, 1, 1);
+        assertEquals(BigInteger.valueOf(110), score.call("totalSupply"));
+    }
+
+    @Test
+    void burn() {
+        score.invoke(alice, "burn", BigInteger.TEN);
+        assertAccesses(1, 1, 1, 1);
+        assertEquals(BigInteger.valueOf(90), score.call("balanceOf", alice.getAddress()));
+        assertEquals(BigInteger.valueOf(90), score.call("totalSupply"));
+    }
+}
@@ -22,12 +22,16 @@ import com.iconloop.score.test.ServiceManager;
 import com.iconloop.score.test.TestBase;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import score.Address;
 import score.Context;
+import score.UserRevertedException;
 
 import java.math.BigInteger;
 
 import static java.math.BigInteger.TEN;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class IRC2BasicTest extends TestBase {
     private static final String name = "MyIRC2Token";
@@ -47,6 +51,22 @@ class IRC2BasicTest extends TestBase {
         }
     }
 
+    public static class IRC2RankedToken extends IRC2BasicToken {
+        public IRC2RankedToken(String _name, String _symbol, int _decimals, BigInteger _totalSupply) {
+            super(_name, _symbol, _decimals, _totalSupply);
+        }
+
+        @Override
+        protected boolean _holderRankingEnabled() {
+            return true;
+        }
+
+        @Override
+        protected int _sortedIndexOrder() {
+            return 3;
+        }
+    }
+
     @BeforeAll
     public static void setup() throws Exception {
         tokenScore = sm.deploy(owner, IRC2BasicToken.class,
@@ -95,4 +115,61 @@ class IRC2BasicTest extends TestBase {
         tokenScore.invoke(alice, "transfer", alice.getAddress(), value, "self transfer".getBytes());
         assertEquals(value, tokenScore.call("balanceOf", alice.getAddress()));
     }
+
+    @Test
+    void transferBatch() {
+        Account alice = sm.createAccount();
+        Account bob = sm.createAccount();
+        BigInteger value = TEN.pow(decimals);
+        Address[] to = {alice.getAddress(), bob.getAddress(), alice.getAddress()};
+        BigInteger[] values = {value, value.multiply(TEN), value};
+        tokenScore.invoke(owner, "transferBatch", to, values, "batch".getBytes());
+        owner.subtractBalance(symbol, value.multiply(BigInteger.valueOf(12)));
+        assertEquals(owner.getBalance(symbol),
+                tokenScore.call("balanceOf", tokenScore.getOwner().getAddress()));
+        assertEquals(value.multiply(BigInteger.TWO), tokenScore.call("balanceOf", alice.getAddress()));
+        assertEquals(value.multiply(TEN), tokenScore.call("balanceOf", bob.getAddress()));
+    }
+
+    @Test
+    void transferBatchInsufficientTotal() {
+        Account alice = sm.createAccount();
+        Account bob = sm.createAccount();
+        BigInteger value = TEN.pow(decimals);
+        tokenScore.invoke(owner, "transfer", alice.getAddress(), value, "to alice".getBytes());
+        owner.subtractBalance(symbol, value);
+
+        // each value fits the balance, but the sum does not
+        Address[] to = {bob.getAddress(), bob.getAddress()};
+        BigInteger[] values = {value, BigInteger.ONE};
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(alice, "transferBatch", to, values, "batch".getBytes()));
+        assertEquals(value, tokenScore.call("balanceOf", alice.getAddress()));
+        assertEquals(BigInteger.ZERO, tokenScore.call("balanceOf", bob.getAddress()));
+
+        // mismatched arrays
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(alice, "transferBatch", to, new BigInteger[]{BigInteger.ONE}, "batch".getBytes()));
+    }
+
+    @Test
+    void topHolders() throws Exception {
+        Score ranked = sm.deploy(owner, IRC2RankedToken.class, name, symbol, decimals, BigInteger.valueOf(100));
+        Account alice = sm.createAccount();
+        Account bob = sm.createAccount();
+        assertArrayEquals(new Address[]{owner.getAddress()}, (Address[]) ranked.call("topHolders", 10));
+
+        Address[] to = {alice.getAddress(), bob.getAddress()};
+        ranked.invoke(owner, "transferBatch", to, new BigInteger[]{BigInteger.valueOf(60), TEN}, new byte[0]);
+        assertArrayEquals(new Address[]{alice.getAddress(), owner.getAddress(), bob.getAddress()},
+                (Address[]) ranked.call("topHolders", 10));
+        assertArrayEquals(new Address[]{alice.getAddress()}, (Address[]) ranked.call("topHolders", 1));
+
+        // an emptied balance drops out of the ranking
+        ranked.invoke(alice, "transfer", bob.getAddress(), BigInteger.valueOf(60), new byte[0]);
+        assertArrayEquals(new Address[]{bob.getAddress(), owner.getAddress()}, (Address[]) ranked.call("topHolders", 10));
+
+        // disabled by default
+        assertThrows(UserRevertedException.class, () -> tokenScore.call("topHolders", 10));
+    }
 }
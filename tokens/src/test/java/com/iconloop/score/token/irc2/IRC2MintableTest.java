@@ -96,6 +96,38 @@ public class IRC2MintableTest extends TestBase {
         verify(tokenSpy).Transfer(zeroAddress, alice.getAddress(), amount, "mint".getBytes());
     }
 
+    @Test
+    void mintToBatch() {
+        final Address zeroAddress = new Address(new byte[Address.LENGTH]);
+        assertEquals(totalSupply, tokenScore.call("totalSupply"));
+
+        // mint 10 token to alice and 20 token to owner
+        BigInteger amount = TEN.pow(decimals);
+        Address[] accounts = {alice.getAddress(), owner.getAddress()};
+        BigInteger[] amounts = {amount, amount.multiply(BigInteger.TWO)};
+        tokenScore.invoke(owner, "mintToBatch", accounts, amounts);
+        alice.addBalance(symbol, amounts[0]);
+        owner.addBalance(symbol, amounts[1]);
+        totalSupply = totalSupply.add(amounts[0]).add(amounts[1]);
+        assertEquals(alice.getBalance(symbol), tokenScore.call("balanceOf", alice.getAddress()));
+        assertEquals(owner.getBalance(symbol), tokenScore.call("balanceOf", owner.getAddress()));
+        assertEquals(totalSupply, tokenScore.call("totalSupply"));
+        verify(tokenSpy).Transfer(zeroAddress, alice.getAddress(), amounts[0], "mint".getBytes());
+        verify(tokenSpy).Transfer(zeroAddress, owner.getAddress(), amounts[1], "mint".getBytes());
+    }
+
+    @Test
+    void mintToBatchEve() {
+        // mint 10 token to Alice but fail, eve is not owner
+        BigInteger amount = TEN.pow(decimals);
+        Address[] accounts = {alice.getAddress()};
+        BigInteger[] amounts = {amount};
+        assertThrows(UserRevertedException.class, () -> tokenScore.invoke(eve, "mintToBatch", accounts, amounts));
+        // fail with mismatched pairs
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(owner, "mintToBatch", accounts, new BigInteger[]{amount, amount}));
+    }
+
     @Test
     void mintEve() {
         // mint 10 token but fail, eve is not owner
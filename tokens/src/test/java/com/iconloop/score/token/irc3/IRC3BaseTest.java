@@ -0,0 +1,226 @@
+/*
+ * Copyright 2021 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.token.irc3;
+
+import com.iconloop.score.test.Account;
+import com.iconloop.score.test.Score;
+import com.iconloop.score.test.ServiceManager;
+import com.iconloop.score.test.TestBase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import score.Address;
+import score.Context;
+import score.UserRevertedException;
+import score.annotation.External;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class IRC3BaseTest extends TestBase {
+    private static final Address ZERO_ADDRESS =  new Address(new byte[Address.LENGTH]);
+    private static final String name = "MyLeanIRC3Token";
+    private static final String symbol = "LNFT";
+
+    private static final ServiceManager sm = getServiceManager();
+    private static final Account owner = sm.createAccount();
+    private Score tokenScore;
+    private int nextTokenId;
+
+    public static class IRC3BaseToken extends IRC3Base {
+        public IRC3BaseToken(String _name, String _symbol) {
+            super(_name, _symbol);
+        }
+
+        @External
+        public void mint(BigInteger _tokenId) {
+            // simple access control - only the contract owner can mint new token
+            Context.require(Context.getCaller().equals(Context.getOwner()));
+            super._mint(Context.getCaller(), _tokenId);
+        }
+
+        @External
+        public void burn(BigInteger _tokenId) {
+            // simple access control - only the owner of token can burn it
+            Address owner = ownerOf(_tokenId);
+            Context.require(Context.getCaller().equals(owner));
+            super._burn(_tokenId);
+        }
+
+        @External
+        public void setBaseURI(String _uri) {
+            Context.require(Context.getCaller().equals(Context.getOwner()));
+            super._setBaseURI(_uri);
+        }
+
+        @External
+        public void setTokenURI(BigInteger _tokenId, String _uri) {
+            Context.require(Context.getCaller().equals(Context.getOwner()));
+            super._setTokenURI(_tokenId, _uri);
+        }
+    }
+
+    @BeforeEach
+    public void setup() throws Exception {
+        tokenScore = sm.deploy(owner, IRC3BaseToken.class, name, symbol);
+    }
+
+    private BigInteger mintToken() {
+        var tokenId = BigInteger.valueOf(++nextTokenId);
+        tokenScore.invoke(owner, "mint", tokenId);
+        return tokenId;
+    }
+
+    @Test
+    void name() {
+        assertEquals(name, tokenScore.call("name"));
+        assertEquals(symbol, tokenScore.call("symbol"));
+    }
+
+    @Test
+    void mint() {
+        var tokenId = mintToken();
+        assertEquals(owner.getAddress(), tokenScore.call("ownerOf", tokenId));
+        assertEquals(1, tokenScore.call("balanceOf", owner.getAddress()));
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(owner, "mint", tokenId));
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.call("ownerOf", tokenId.add(BigInteger.ONE)));
+    }
+
+    @Test
+    void transfer() {
+        var tokenId = mintToken();
+        mintToken();
+        var alice = sm.createAccount();
+        tokenScore.invoke(owner, "transfer", alice.getAddress(), tokenId);
+        assertEquals(alice.getAddress(), tokenScore.call("ownerOf", tokenId));
+        assertEquals(1, tokenScore.call("balanceOf", owner.getAddress()));
+        assertEquals(1, tokenScore.call("balanceOf", alice.getAddress()));
+
+        // self transfer keeps the balance
+        tokenScore.invoke(alice, "transfer", alice.getAddress(), tokenId);
+        assertEquals(1, tokenScore.call("balanceOf", alice.getAddress()));
+
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(owner, "transfer", alice.getAddress(), tokenId));
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(alice, "transfer", ZERO_ADDRESS, tokenId));
+    }
+
+    @Test
+    void transferFrom() {
+        var tokenId = mintToken();
+        var alice = sm.createAccount();
+        var bob = sm.createAccount();
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(alice, "transferFrom", owner.getAddress(), bob.getAddress(), tokenId));
+        tokenScore.invoke(owner, "approve", alice.getAddress(), tokenId);
+        assertEquals(alice.getAddress(), tokenScore.call("getApproved", tokenId));
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(alice, "transferFrom", bob.getAddress(), alice.getAddress(), tokenId));
+        assertDoesNotThrow(() ->
+                tokenScore.invoke(alice, "transferFrom", owner.getAddress(), bob.getAddress(), tokenId));
+        assertEquals(bob.getAddress(), tokenScore.call("ownerOf", tokenId));
+        assertEquals(ZERO_ADDRESS, tokenScore.call("getApproved", tokenId));
+        assertEquals(0, tokenScore.call("balanceOf", owner.getAddress()));
+        assertEquals(1, tokenScore.call("balanceOf", bob.getAddress()));
+    }
+
+    @Test
+    void setApprovalForAll() {
+        var tokenId = mintToken();
+        var tokenId2 = mintToken();
+        var operator = sm.createAccount();
+        var bob = sm.createAccount();
+        assertEquals(false, tokenScore.call("isApprovedForAll", owner.getAddress(), operator.getAddress()));
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(owner, "setApprovalForAll", owner.getAddress(), true));
+
+        tokenScore.invoke(owner, "setApprovalForAll", operator.getAddress(), true);
+        assertEquals(true, tokenScore.call("isApprovedForAll", owner.getAddress(), operator.getAddress()));
+        tokenScore.invoke(operator, "transferFrom", owner.getAddress(), bob.getAddress(), tokenId);
+        assertEquals(bob.getAddress(), tokenScore.call("ownerOf", tokenId));
+        // the operator of the owner is not an operator of bob
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(operator, "transferFrom", bob.getAddress(), owner.getAddress(), tokenId));
+
+        tokenScore.invoke(owner, "setApprovalForAll", operator.getAddress(), false);
+        assertEquals(false, tokenScore.call("isApprovedForAll", owner.getAddress(), operator.getAddress()));
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(operator, "transferFrom", owner.getAddress(), bob.getAddress(), tokenId2));
+    }
+
+    @Test
+    void transferFromBatch() {
+        var tokenIds = new BigInteger[]{mintToken(), mintToken(), mintToken()};
+        var alice = sm.createAccount();
+        var bob = sm.createAccount();
+        tokenScore.invoke(owner, "approve", alice.getAddress(), tokenIds[0]);
+        // alice is approved only for the first token
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(alice, "transferFromBatch", owner.getAddress(), bob.getAddress(), tokenIds));
+        tokenScore.invoke(alice, "transferFromBatch", owner.getAddress(), bob.getAddress(), new BigInteger[]{tokenIds[0]});
+        assertEquals(bob.getAddress(), tokenScore.call("ownerOf", tokenIds[0]));
+        assertEquals(ZERO_ADDRESS, tokenScore.call("getApproved", tokenIds[0]));
+
+        tokenScore.invoke(owner, "setApprovalForAll", alice.getAddress(), true);
+        var rest = new BigInteger[]{tokenIds[1], tokenIds[2]};
+        tokenScore.invoke(alice, "transferFromBatch", owner.getAddress(), bob.getAddress(), rest);
+        assertEquals(0, tokenScore.call("balanceOf", owner.getAddress()));
+        assertEquals(3, tokenScore.call("balanceOf", bob.getAddress()));
+
+        // duplicated token IDs are rejected
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(bob, "transferBatch", alice.getAddress(), new BigInteger[]{tokenIds[1], tokenIds[1]}));
+        assertEquals(3, tokenScore.call("balanceOf", bob.getAddress()));
+    }
+
+    @Test
+    void tokenURI() {
+        var tokenId = mintToken();
+        assertNull(tokenScore.call("tokenURI", tokenId));
+
+        tokenScore.invoke(owner, "setBaseURI", "https://nft.example/{id}");
+        assertEquals("https://nft.example/" + "0".repeat(63) + tokenId.toString(16),
+                tokenScore.call("tokenURI", tokenId));
+
+        // the URI set for the token overrides the base URI
+        tokenScore.invoke(owner, "setTokenURI", tokenId, "ipfs://token");
+        assertEquals("ipfs://token", tokenScore.call("tokenURI", tokenId));
+
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.call("tokenURI", BigInteger.valueOf(1000)));
+    }
+
+    @Test
+    void burn() {
+        var tokenId = mintToken();
+        var tokenId2 = mintToken();
+        tokenScore.invoke(owner, "approve", sm.createAccount().getAddress(), tokenId);
+        tokenScore.invoke(owner, "burn", tokenId);
+        assertEquals(1, tokenScore.call("balanceOf", owner.getAddress()));
+        assertEquals(ZERO_ADDRESS, tokenScore.call("getApproved", tokenId));
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.call("ownerOf", tokenId));
+        tokenScore.invoke(owner, "burn", tokenId2);
+        assertEquals(0, tokenScore.call("balanceOf", owner.getAddress()));
+    }
+}
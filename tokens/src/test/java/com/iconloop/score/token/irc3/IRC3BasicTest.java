@@ -30,6 +30,7 @@ import score.annotation.External;
 import java.math.BigInteger;
 import java.security.SecureRandom;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -63,6 +64,29 @@ public class IRC3BasicTest extends TestBase {
             Context.require(Context.getCaller().equals(owner));
             super._burn(_tokenId);
         }
+
+        @External
+        public void burnBatch(BigInteger[] _tokenIds) {
+            // simple access control - only the owner of tokens can burn them
+            super._burnBatch(Context.getCaller(), _tokenIds);
+        }
+    }
+
+    public static class IRC3SortedToken extends IRC3BasicToken {
+        public IRC3SortedToken(String _name, String _symbol) {
+            super(_name, _symbol);
+        }
+
+        @Override
+        protected boolean _sortedTokenIndexEnabled() {
+            return true;
+        }
+
+        @Override
+        protected int _sortedIndexOrder() {
+            // the smallest order, so that the index splits while minting
+            return 3;
+        }
     }
 
     @BeforeEach
@@ -146,6 +170,111 @@ public class IRC3BasicTest extends TestBase {
         assertEquals(alice.getAddress(), tokenScore.call("ownerOf", tokenId));
     }
 
+    @Test
+    void tokenOfOwnerByIndex() {
+        var tokenIds = new BigInteger[]{mintToken(), mintToken(), mintToken()};
+        var alice = sm.createAccount();
+        assertEquals(BigInteger.ZERO, tokenScore.call("tokenOfOwnerByIndex", alice.getAddress(), 0));
+
+        // move the first token, then the last one moves into its place
+        tokenScore.invoke(owner, "transfer", alice.getAddress(), tokenIds[0]);
+        assertEquals(2, tokenScore.call("balanceOf", owner.getAddress()));
+        assertEquals(tokenIds[2], tokenScore.call("tokenOfOwnerByIndex", owner.getAddress(), 0));
+        assertEquals(tokenIds[1], tokenScore.call("tokenOfOwnerByIndex", owner.getAddress(), 1));
+        assertEquals(1, tokenScore.call("balanceOf", alice.getAddress()));
+        assertEquals(tokenIds[0], tokenScore.call("tokenOfOwnerByIndex", alice.getAddress(), 0));
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.call("tokenOfOwnerByIndex", alice.getAddress(), 1));
+
+        tokenScore.invoke(alice, "transfer", owner.getAddress(), tokenIds[0]);
+        assertEquals(0, tokenScore.call("balanceOf", alice.getAddress()));
+        assertEquals(3, tokenScore.call("balanceOf", owner.getAddress()));
+        assertEquals(tokenIds[0], tokenScore.call("tokenOfOwnerByIndex", owner.getAddress(), 2));
+    }
+
+    @Test
+    void transferBatch() {
+        var tokenIds = new BigInteger[]{mintToken(), mintToken(), mintToken(), mintToken()};
+        var alice = sm.createAccount();
+        var moved = new BigInteger[]{tokenIds[3], tokenIds[0], tokenIds[2]};
+        tokenScore.invoke(owner, "transferBatch", alice.getAddress(), moved);
+        assertEquals(1, tokenScore.call("balanceOf", owner.getAddress()));
+        assertEquals(tokenIds[1], tokenScore.call("tokenOfOwnerByIndex", owner.getAddress(), 0));
+        assertEquals(3, tokenScore.call("balanceOf", alice.getAddress()));
+        for (int i = 0; i < moved.length; i++) {
+            assertEquals(alice.getAddress(), tokenScore.call("ownerOf", moved[i]));
+            assertEquals(moved[i], tokenScore.call("tokenOfOwnerByIndex", alice.getAddress(), i));
+        }
+
+        // all or nothing
+        var bob = sm.createAccount();
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(alice, "transferBatch", bob.getAddress(), new BigInteger[]{tokenIds[0], tokenIds[1]}));
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(alice, "transferBatch", bob.getAddress(), new BigInteger[]{tokenIds[0], tokenIds[0]}));
+        assertEquals(0, tokenScore.call("balanceOf", bob.getAddress()));
+        assertEquals(3, tokenScore.call("balanceOf", alice.getAddress()));
+    }
+
+    @Test
+    void burnBatch() {
+        var tokenIds = new BigInteger[]{mintToken(), mintToken(), mintToken()};
+        tokenScore.invoke(owner, "burnBatch", (Object) new BigInteger[]{tokenIds[0], tokenIds[2]});
+        assertEquals(1, tokenScore.call("totalSupply"));
+        assertEquals(tokenIds[1], tokenScore.call("tokenByIndex", 0));
+        assertEquals(1, tokenScore.call("balanceOf", owner.getAddress()));
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.call("ownerOf", tokenIds[0]));
+
+        // all or nothing, if any of the tokens is not owned by the caller
+        var alice = sm.createAccount();
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(alice, "burnBatch", (Object) new BigInteger[]{tokenIds[1]}));
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(owner, "burnBatch", (Object) new BigInteger[]{tokenIds[1], tokenIds[0]}));
+        assertEquals(1, tokenScore.call("totalSupply"));
+        assertEquals(owner.getAddress(), tokenScore.call("ownerOf", tokenIds[1]));
+    }
+
+    @Test
+    void burnMovesLastToken() {
+        var alice = sm.createAccount();
+        var tokenIds = new BigInteger[]{mintToken(), mintToken(), mintToken()};
+        tokenScore.invoke(owner, "burn", tokenIds[0]);
+        // the last token takes the place of the burned one, and keeps its owner
+        assertEquals(tokenIds[2], tokenScore.call("tokenByIndex", 0));
+        assertEquals(tokenIds[1], tokenScore.call("tokenByIndex", 1));
+        assertEquals(owner.getAddress(), tokenScore.call("ownerOf", tokenIds[2]));
+
+        tokenScore.invoke(owner, "transfer", alice.getAddress(), tokenIds[2]);
+        assertEquals(alice.getAddress(), tokenScore.call("ownerOf", tokenIds[2]));
+        assertEquals(tokenIds[2], tokenScore.call("tokenByIndex", 0));
+        assertEquals(2, tokenScore.call("totalSupply"));
+    }
+
+    @Test
+    void pagedViews() {
+        var tokenIds = new BigInteger[]{mintToken(), mintToken(), mintToken(), mintToken(), mintToken()};
+        var alice = sm.createAccount();
+        tokenScore.invoke(owner, "transfer", alice.getAddress(), tokenIds[1]);
+
+        assertArrayEquals(tokenIds, (BigInteger[]) tokenScore.call("allTokens", 0, 10));
+        assertArrayEquals(new BigInteger[]{tokenIds[3], tokenIds[4]}, (BigInteger[]) tokenScore.call("allTokens", 3, 2));
+        assertArrayEquals(new BigInteger[0], (BigInteger[]) tokenScore.call("allTokens", 5, 2));
+        assertThrows(UserRevertedException.class, () -> tokenScore.call("allTokens", -1, 2));
+
+        var owned = (BigInteger[]) tokenScore.call("tokensOfOwner", owner.getAddress(), 0, 10);
+        assertEquals(4, owned.length);
+        for (int i = 0; i < owned.length; i++) {
+            assertEquals(tokenScore.call("tokenOfOwnerByIndex", owner.getAddress(), i), owned[i]);
+        }
+        assertArrayEquals(new BigInteger[]{owned[2]}, (BigInteger[]) tokenScore.call("tokensOfOwner", owner.getAddress(), 2, 1));
+        assertArrayEquals(new BigInteger[]{tokenIds[1]}, (BigInteger[]) tokenScore.call("tokensOfOwner", alice.getAddress(), 0, 10));
+
+        var owners = (Address[]) tokenScore.call("ownersOf", (Object) new BigInteger[]{tokenIds[0], tokenIds[1], getTokenId()});
+        assertArrayEquals(new Address[]{owner.getAddress(), alice.getAddress(), ZERO_ADDRESS}, owners);
+    }
+
     @Test
     void burn() {
         var tokenId = mintToken();
@@ -160,4 +289,28 @@ public class IRC3BasicTest extends TestBase {
         tokenScore.invoke(owner, "burn", tokenId2);
         assertEquals(0, tokenScore.call("totalSupply"));
     }
+
+    @Test
+    void tokensInRange() throws Exception {
+        var sorted = sm.deploy(owner, IRC3SortedToken.class, name, symbol);
+        for (int id : new int[]{50, 10, 40, 20, 30}) {
+            sorted.invoke(owner, "mint", BigInteger.valueOf(id));
+        }
+        var alice = sm.createAccount();
+        sorted.invoke(owner, "transfer", alice.getAddress(), BigInteger.valueOf(20));
+        sorted.invoke(owner, "burn", BigInteger.valueOf(40));
+
+        var all = new BigInteger[]{BigInteger.valueOf(10), BigInteger.valueOf(20), BigInteger.valueOf(30), BigInteger.valueOf(50)};
+        assertArrayEquals(all, (BigInteger[]) sorted.call("tokensInRange", 10, null, null));
+        assertArrayEquals(new BigInteger[]{all[1], all[2]},
+                (BigInteger[]) sorted.call("tokensInRange", 10, BigInteger.valueOf(15), BigInteger.valueOf(50)));
+        assertArrayEquals(new BigInteger[]{all[2]},
+                (BigInteger[]) sorted.call("tokensInRange", 1, BigInteger.valueOf(21), null));
+
+        sorted.invoke(owner, "burnBatch", (Object) new BigInteger[]{all[0], all[3]});
+        assertArrayEquals(new BigInteger[]{all[1], all[2]}, (BigInteger[]) sorted.call("tokensInRange", 10, null, null));
+
+        // disabled by default
+        assertThrows(UserRevertedException.class, () -> tokenScore.call("tokensInRange", 10, null, null));
+    }
 }
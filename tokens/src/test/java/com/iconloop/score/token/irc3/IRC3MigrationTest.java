@@ -0,0 +1,126 @@
+/*
+ * Copyright 2021 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.token.irc3;
+
+import com.iconloop.score.test.Account;
+import com.iconloop.score.test.Score;
+import com.iconloop.score.test.ServiceManager;
+import com.iconloop.score.test.TestBase;
+import com.iconloop.score.util.EnumerableMap;
+import com.iconloop.score.util.IntSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import score.Address;
+import score.Context;
+import score.DictDB;
+import score.annotation.External;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class IRC3MigrationTest extends TestBase {
+    private static final ServiceManager sm = getServiceManager();
+    private static final Account owner = sm.createAccount();
+    private static final Account alice = sm.createAccount();
+    private Score score;
+
+    public static class IRC3MigratedToken extends IRC3Basic {
+        // written the way earlier versions of IRC3Basic did
+        private final DictDB<Address, IntSet> holders = Context.newDictDB("holders", IntSet.class);
+        private final EnumerableMap<BigInteger, Address> owners = new EnumerableMap<>("owners", BigInteger.class, Address.class);
+
+        public IRC3MigratedToken(String _name, String _symbol) {
+            super(_name, _symbol);
+        }
+
+        @External
+        public void legacyMint(Address _to, BigInteger _tokenId) {
+            var tokens = holders.get(_to);
+            if (tokens == null) {
+                tokens = new IntSet(_to.toString());
+                holders.set(_to, tokens);
+            }
+            tokens.add(_tokenId);
+            owners.set(_tokenId, _to);
+        }
+
+        @External(readonly=true)
+        public boolean legacyHolderExists(Address _owner) {
+            return holders.get(_owner) != null;
+        }
+
+        @External(readonly=true)
+        public int legacyLength() {
+            return owners.length();
+        }
+
+        @External
+        public void migrate(int _limit) {
+            _migrateLegacyStorage(_limit);
+        }
+    }
+
+    @BeforeEach
+    void setup() throws Exception {
+        score = sm.deploy(owner, IRC3MigratedToken.class, "MyIRC3Token", "NFT");
+    }
+
+    private static BigInteger[] sorted(BigInteger[] tokenIds) {
+        BigInteger[] copy = tokenIds.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    @Test
+    void migrateInSteps() {
+        for (int i = 1; i <= 5; i++) {
+            Account to = (i % 2 == 0) ? alice : owner;
+            score.invoke(owner, "legacyMint", to.getAddress(), BigInteger.valueOf(i));
+        }
+        // nothing is visible in the current layout yet
+        assertEquals(0, score.call("totalSupply"));
+        assertEquals(0, score.call("balanceOf", alice.getAddress()));
+
+        score.invoke(owner, "migrate", 2);
+        assertEquals(3, score.call("legacyLength"));
+        assertEquals(2, score.call("totalSupply"));
+
+        score.invoke(owner, "migrate", 10);
+        assertEquals(0, score.call("legacyLength"));
+        assertEquals(5, score.call("totalSupply"));
+        assertEquals(3, score.call("balanceOf", owner.getAddress()));
+        assertEquals(2, score.call("balanceOf", alice.getAddress()));
+        assertEquals(alice.getAddress(), score.call("ownerOf", BigInteger.TWO));
+        assertArrayEquals(new BigInteger[]{BigInteger.valueOf(2), BigInteger.valueOf(4)},
+                sorted((BigInteger[]) score.call("tokensOfOwner", alice.getAddress(), 0, 10)));
+
+        // the old holder sets are cleared, and calling again is a no-op
+        assertFalse((boolean) score.call("legacyHolderExists", owner.getAddress()));
+        assertFalse((boolean) score.call("legacyHolderExists", alice.getAddress()));
+        score.invoke(owner, "migrate", 10);
+        assertEquals(5, score.call("totalSupply"));
+
+        // migrated tokens behave as usual
+        score.invoke(alice, "transfer", owner.getAddress(), BigInteger.TWO);
+        assertEquals(owner.getAddress(), score.call("ownerOf", BigInteger.TWO));
+        assertEquals(1, score.call("balanceOf", alice.getAddress()));
+    }
+}
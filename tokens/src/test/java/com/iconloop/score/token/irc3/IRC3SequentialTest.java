@@ -0,0 +1,294 @@
+/*
+ * Copyright 2021 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.token.irc3;
+
+import com.iconloop.score.test.Account;
+import com.iconloop.score.test.Score;
+import com.iconloop.score.test.ServiceManager;
+import com.iconloop.score.test.TestBase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import score.Address;
+import score.Context;
+import score.DictDB;
+import score.UserRevertedException;
+import score.annotation.External;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class IRC3SequentialTest extends TestBase {
+    private static final String name = "MySequentialToken";
+    private static final String symbol = "SNFT";
+
+    private static final ServiceManager sm = getServiceManager();
+    private static final Account owner = sm.createAccount();
+    private static final Account alice = sm.createAccount();
+    private static final Account bob = sm.createAccount();
+    private Score tokenScore;
+
+    public static class IRC3SequentialToken extends IRC3Sequential {
+        public IRC3SequentialToken(String _name, String _symbol) {
+            super(_name, _symbol);
+        }
+
+        @External
+        public void mintBatch(Address _to, int _quantity) {
+            // simple access control - only the contract owner can mint new token
+            Context.require(Context.getCaller().equals(Context.getOwner()));
+            super._mintSequential(_to, _quantity);
+        }
+
+        @External
+        public void mint(BigInteger _tokenId) {
+            Context.require(Context.getCaller().equals(Context.getOwner()));
+            super._mint(Context.getCaller(), _tokenId);
+        }
+
+        @External
+        public void burn(BigInteger _tokenId) {
+            // simple access control - only the owner of token can burn it
+            Address owner = ownerOf(_tokenId);
+            Context.require(Context.getCaller().equals(owner));
+            super._burn(_tokenId);
+        }
+
+        @External
+        public void burnRange(BigInteger _fromTokenId, BigInteger _toTokenId) {
+            Address owner = ownerOf(_fromTokenId);
+            Context.require(Context.getCaller().equals(owner));
+            super._burnRange(_fromTokenId, _toTokenId);
+        }
+    }
+
+    public static class IRC3ConsecutiveToken extends IRC3SequentialToken {
+        public IRC3ConsecutiveToken(String _name, String _symbol) {
+            super(_name, _symbol);
+        }
+
+        @Override
+        protected boolean _consecutiveTransferEnabled() {
+            return true;
+        }
+    }
+
+    public static class IRC3CheckpointToken extends IRC3SequentialToken {
+        private final DictDB<BigInteger, Address> ownerships = Context.newDictDB("ownerships", Address.class);
+
+        public IRC3CheckpointToken(String _name, String _symbol) {
+            super(_name, _symbol);
+        }
+
+        @Override
+        protected int _checkpointInterval() {
+            return 4;
+        }
+
+        @External(readonly=true)
+        public int lookupReads(BigInteger _tokenId) {
+            // the number of ownership records read to resolve the owner
+            int reads = 1;
+            for (BigInteger id = _tokenId; ownerships.get(id) == null; id = id.subtract(BigInteger.ONE)) {
+                reads++;
+            }
+            return reads;
+        }
+    }
+
+    @BeforeEach
+    public void setup() throws Exception {
+        tokenScore = sm.deploy(owner, IRC3SequentialToken.class, name, symbol);
+    }
+
+    private void assertOwners(Account... owners) {
+        for (int i = 0; i < owners.length; i++) {
+            var tokenId = BigInteger.valueOf(i);
+            if (owners[i] == null) {
+                assertThrows(UserRevertedException.class, () -> tokenScore.call("ownerOf", tokenId));
+            } else {
+                assertEquals(owners[i].getAddress(), tokenScore.call("ownerOf", tokenId));
+            }
+        }
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.call("ownerOf", BigInteger.valueOf(owners.length)));
+    }
+
+    @Test
+    void mintBatch() {
+        tokenScore.invoke(owner, "mintBatch", alice.getAddress(), 3);
+        tokenScore.invoke(owner, "mintBatch", bob.getAddress(), 2);
+        assertOwners(alice, alice, alice, bob, bob);
+        assertEquals(3, tokenScore.call("balanceOf", alice.getAddress()));
+        assertEquals(2, tokenScore.call("balanceOf", bob.getAddress()));
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.call("ownerOf", BigInteger.ONE.negate()));
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(owner, "mintBatch", alice.getAddress(), 0));
+    }
+
+    @Test
+    void mintSingle() {
+        tokenScore.invoke(owner, "mint", BigInteger.ZERO);
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(owner, "mint", BigInteger.TWO));
+        tokenScore.invoke(owner, "mint", BigInteger.ONE);
+        assertOwners(owner, owner);
+    }
+
+    @Test
+    void transferSplitsRun() {
+        tokenScore.invoke(owner, "mintBatch", alice.getAddress(), 5);
+        tokenScore.invoke(alice, "transfer", bob.getAddress(), BigInteger.TWO);
+        assertOwners(alice, alice, bob, alice, alice);
+
+        tokenScore.invoke(alice, "transfer", bob.getAddress(), BigInteger.valueOf(4));
+        tokenScore.invoke(alice, "transfer", bob.getAddress(), BigInteger.ZERO);
+        assertOwners(bob, alice, bob, alice, bob);
+        assertEquals(2, tokenScore.call("balanceOf", alice.getAddress()));
+        assertEquals(3, tokenScore.call("balanceOf", bob.getAddress()));
+
+        tokenScore.invoke(bob, "transferFrom", bob.getAddress(), alice.getAddress(), BigInteger.TWO);
+        assertOwners(bob, alice, alice, alice, bob);
+    }
+
+    @Test
+    void transferBatchSplitsRuns() {
+        tokenScore.invoke(owner, "mintBatch", alice.getAddress(), 6);
+        var tokenIds = new BigInteger[]{BigInteger.valueOf(4), BigInteger.ONE, BigInteger.TWO};
+        tokenScore.invoke(alice, "transferBatch", bob.getAddress(), tokenIds);
+        assertOwners(alice, bob, bob, alice, bob, alice);
+        assertEquals(3, tokenScore.call("balanceOf", alice.getAddress()));
+        assertEquals(3, tokenScore.call("balanceOf", bob.getAddress()));
+    }
+
+    @Test
+    void burn() {
+        tokenScore.invoke(owner, "mintBatch", alice.getAddress(), 3);
+        tokenScore.invoke(alice, "burn", BigInteger.ONE);
+        assertOwners(alice, null, alice);
+        assertEquals(2, tokenScore.call("balanceOf", alice.getAddress()));
+
+        tokenScore.invoke(alice, "burn", BigInteger.TWO);
+        tokenScore.invoke(owner, "mintBatch", bob.getAddress(), 2);
+        assertOwners(alice, null, null, bob, bob);
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(alice, "transfer", bob.getAddress(), BigInteger.ONE));
+    }
+
+    @Test
+    void burnRange() {
+        tokenScore.invoke(owner, "mintBatch", alice.getAddress(), 3);
+        tokenScore.invoke(owner, "mintBatch", alice.getAddress(), 3);
+        tokenScore.invoke(alice, "transfer", bob.getAddress(), BigInteger.valueOf(4));
+        // the range has tokens of another owner
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(alice, "burnRange", BigInteger.ONE, BigInteger.valueOf(4)));
+
+        tokenScore.invoke(alice, "burnRange", BigInteger.ONE, BigInteger.valueOf(3));
+        assertOwners(alice, null, null, null, bob, alice);
+        assertEquals(2, tokenScore.call("balanceOf", alice.getAddress()));
+        assertThrows(UserRevertedException.class, () ->
+                tokenScore.invoke(alice, "burnRange", BigInteger.ZERO, BigInteger.ONE));
+    }
+
+    @Test
+    void checkpointsBoundLookups() throws Exception {
+        Score score = sm.deploy(owner, IRC3CheckpointToken.class, name, symbol);
+        score.invoke(owner, "mintBatch", alice.getAddress(), 3);
+        score.invoke(owner, "mintBatch", bob.getAddress(), 20);
+        for (int i = 0; i < 23; i++) {
+            var tokenId = BigInteger.valueOf(i);
+            assertTrue((int) score.call("lookupReads", tokenId) <= 4);
+            assertEquals(((i < 3) ? alice : bob).getAddress(), score.call("ownerOf", tokenId));
+        }
+        assertEquals(20, score.call("balanceOf", bob.getAddress()));
+
+        // the checkpoints in a burned range stay, so the lookups after it are still bounded
+        score.invoke(bob, "burnRange", BigInteger.valueOf(5), BigInteger.valueOf(18));
+        for (int i = 0; i < 23; i++) {
+            var tokenId = BigInteger.valueOf(i);
+            assertTrue((int) score.call("lookupReads", tokenId) <= 4);
+            if (i >= 5 && i <= 18) {
+                assertThrows(UserRevertedException.class, () -> score.call("ownerOf", tokenId));
+            } else {
+                assertEquals(((i < 3) ? alice : bob).getAddress(), score.call("ownerOf", tokenId));
+            }
+        }
+        assertEquals(6, score.call("balanceOf", bob.getAddress()));
+    }
+
+    @Test
+    void consecutiveTransfer() throws Exception {
+        var perToken = (IRC3SequentialToken) spy(tokenScore.getInstance());
+        tokenScore.setInstance(perToken);
+        Score rangeScore = sm.deploy(owner, IRC3ConsecutiveToken.class, name, symbol);
+        var ranged = (IRC3ConsecutiveToken) spy(rangeScore.getInstance());
+        rangeScore.setInstance(ranged);
+
+        for (Score score : new Score[]{tokenScore, rangeScore}) {
+            score.invoke(owner, "mintBatch", alice.getAddress(), 3);
+            score.invoke(owner, "mintBatch", bob.getAddress(), 4);
+            score.invoke(bob, "burnRange", BigInteger.valueOf(4), BigInteger.valueOf(5));
+        }
+
+        // the resulting ownership is the same
+        for (int i = 0; i < 7; i++) {
+            var tokenId = BigInteger.valueOf(i);
+            if (i == 4 || i == 5) {
+                assertThrows(UserRevertedException.class, () -> rangeScore.call("ownerOf", tokenId));
+            } else {
+                assertEquals(tokenScore.call("ownerOf", tokenId), rangeScore.call("ownerOf", tokenId));
+            }
+        }
+
+        // and the expanded event stream is the same
+        ArgumentCaptor<Address> from = ArgumentCaptor.forClass(Address.class);
+        ArgumentCaptor<Address> to = ArgumentCaptor.forClass(Address.class);
+        ArgumentCaptor<BigInteger> tokenId = ArgumentCaptor.forClass(BigInteger.class);
+        verify(perToken, times(9)).Transfer(from.capture(), to.capture(), tokenId.capture());
+        ArgumentCaptor<Address> rangeFrom = ArgumentCaptor.forClass(Address.class);
+        ArgumentCaptor<Address> rangeTo = ArgumentCaptor.forClass(Address.class);
+        ArgumentCaptor<BigInteger> fromTokenId = ArgumentCaptor.forClass(BigInteger.class);
+        ArgumentCaptor<BigInteger> toTokenId = ArgumentCaptor.forClass(BigInteger.class);
+        verify(ranged, times(3)).ConsecutiveTransfer(
+                rangeFrom.capture(), rangeTo.capture(), fromTokenId.capture(), toTokenId.capture());
+
+        List<Object[]> expanded = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            var ids = IRC3Sequential.expandConsecutiveTransfer(
+                    fromTokenId.getAllValues().get(i), toTokenId.getAllValues().get(i));
+            for (var id : ids) {
+                expanded.add(new Object[]{rangeFrom.getAllValues().get(i), rangeTo.getAllValues().get(i), id});
+            }
+        }
+        assertEquals(9, expanded.size());
+        for (int i = 0; i < expanded.size(); i++) {
+            assertArrayEquals(new Object[]{from.getAllValues().get(i), to.getAllValues().get(i), tokenId.getAllValues().get(i)},
+                    expanded.get(i));
+        }
+    }
+}
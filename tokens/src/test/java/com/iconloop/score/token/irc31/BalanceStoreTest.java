@@ -0,0 +1,236 @@
+/*
+ * Copyright 2021 ICONation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.token.irc31;
+
+import com.iconloop.score.test.Account;
+import com.iconloop.score.test.Score;
+import com.iconloop.score.test.ServiceManager;
+import com.iconloop.score.test.TestBase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import score.Address;
+import score.BranchDB;
+import score.DictDB;
+import score.UserRevertedException;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BalanceStoreTest extends TestBase {
+    private static final ServiceManager sm = getServiceManager();
+    private static final Account owner = sm.createAccount();
+    private static final Account alice = sm.createAccount();
+    private static final Account bob = sm.createAccount();
+    private static final Address ZERO_ADDRESS = new Address(new byte[Address.LENGTH]);
+    private static final BigInteger LARGE = BigInteger.valueOf(100_000);
+
+    private CountingBranchDB<BigInteger, Address> balances;
+    private CountingBranchDB<Address, BigInteger> packedBalances;
+
+    static class CountingDictDB<K> implements DictDB<K, BigInteger> {
+        private final Map<K, BigInteger> map = new HashMap<>();
+        int reads;
+        int writes;
+
+        @Override
+        public void set(K key, BigInteger value) {
+            writes++;
+            map.put(key, value);
+        }
+
+        @Override
+        public BigInteger get(K key) {
+            reads++;
+            return map.get(key);
+        }
+
+        @Override
+        public BigInteger getOrDefault(K key, BigInteger defaultValue) {
+            reads++;
+            BigInteger value = map.get(key);
+            return (value != null) ? value : defaultValue;
+        }
+    }
+
+    static class CountingBranchDB<K, L> implements BranchDB<K, DictDB<L, BigInteger>> {
+        private final Map<K, CountingDictDB<L>> branches = new HashMap<>();
+
+        @Override
+        public CountingDictDB<L> at(K key) {
+            return branches.computeIfAbsent(key, k -> new CountingDictDB<>());
+        }
+
+        int reads() {
+            return branches.values().stream().mapToInt(db -> db.reads).sum();
+        }
+
+        int writes() {
+            return branches.values().stream().mapToInt(db -> db.writes).sum();
+        }
+    }
+
+    @BeforeEach
+    void setup() {
+        balances = new CountingBranchDB<>();
+        packedBalances = new CountingBranchDB<>();
+    }
+
+    private BalanceStore newStore() {
+        return new BalanceStore(balances, packedBalances, null);
+    }
+
+    @Test
+    void adjacentIdsShareSlot() {
+        Address account = owner.getAddress();
+        BalanceStore store = newStore();
+        for (int i = 0; i < BalanceStore.COUNTERS_PER_SLOT; i++) {
+            store.setBalance(account, BigInteger.valueOf(i), BigInteger.valueOf(i + 1));
+        }
+        store.flush();
+        assertEquals(1, packedBalances.reads());
+        assertEquals(1, packedBalances.writes());
+        assertEquals(0, balances.writes());
+
+        store = newStore();
+        for (int i = 0; i < BalanceStore.COUNTERS_PER_SLOT; i++) {
+            assertEquals(BigInteger.valueOf(i + 1), store.balanceOf(account, BigInteger.valueOf(i)));
+        }
+        // the next ID goes to the next slot
+        assertEquals(BigInteger.ZERO, store.balanceOf(account, BigInteger.valueOf(BalanceStore.COUNTERS_PER_SLOT)));
+        assertEquals(3, packedBalances.reads());
+    }
+
+    @Test
+    void overflowFallsBack() {
+        Address account = owner.getAddress();
+        BigInteger id = BigInteger.valueOf(3);
+        BalanceStore store = newStore();
+        store.setBalance(account, id, LARGE);
+        store.setBalance(account, BigInteger.TWO, BigInteger.TEN);
+        store.flush();
+        assertEquals(LARGE, balances.at(id).map.get(account));
+
+        store = newStore();
+        assertEquals(LARGE, store.balanceOf(account, id));
+        assertEquals(BigInteger.TEN, store.balanceOf(account, BigInteger.TWO));
+
+        // back into the counter once it fits again
+        store.setBalance(account, id, BigInteger.ONE);
+        store.flush();
+        assertNull(balances.at(id).map.get(account));
+        assertEquals(BigInteger.ONE, newStore().balanceOf(account, id));
+    }
+
+    @Test
+    void negativeIdsAreNotPacked() {
+        Address account = owner.getAddress();
+        BigInteger id = BigInteger.valueOf(-1);
+        BalanceStore store = newStore();
+        store.setBalance(account, id, BigInteger.TEN);
+        store.flush();
+        assertEquals(0, packedBalances.writes());
+        assertEquals(BigInteger.TEN, newStore().balanceOf(account, id));
+    }
+
+    @Test
+    void clearedSlotIsRemoved() {
+        Address account = owner.getAddress();
+        BalanceStore store = newStore();
+        store.setBalance(account, BigInteger.ONE, BigInteger.TEN);
+        store.flush();
+        store = newStore();
+        store.setBalance(account, BigInteger.ONE, BigInteger.ZERO);
+        store.flush();
+        assertNull(packedBalances.at(account).map.get(BigInteger.ZERO));
+    }
+
+    @Test
+    void packedToken() throws Exception {
+        Score score = sm.deploy(owner, IRC31PackedToken.class);
+        BigInteger[] ids = new BigInteger[]{BigInteger.ONE, BigInteger.TWO, BigInteger.valueOf(20)};
+        score.invoke(owner, "mint", ids[0], BigInteger.TEN, "uri1");
+        score.invoke(owner, "mint", ids[1], LARGE, "uri2");
+        score.invoke(owner, "mint", ids[2], BigInteger.ONE, "uri3");
+
+        score.invoke(owner, "transferFromBatch", owner.getAddress(), alice.getAddress(),
+                ids, new BigInteger[]{BigInteger.ONE, LARGE.subtract(BigInteger.ONE), BigInteger.ONE}, new byte[0]);
+        assertArrayEquals(new BigInteger[]{BigInteger.valueOf(9), BigInteger.ONE, BigInteger.ZERO},
+                (BigInteger[]) score.call("balanceOfBatch",
+                        new Address[]{owner.getAddress(), owner.getAddress(), owner.getAddress()}, ids));
+        assertArrayEquals(new BigInteger[]{BigInteger.ONE, LARGE.subtract(BigInteger.ONE), BigInteger.ONE},
+                (BigInteger[]) score.call("balanceOfBatch",
+                        new Address[]{alice.getAddress(), alice.getAddress(), alice.getAddress()}, ids));
+
+        score.invoke(alice, "burn", ids[1], LARGE.subtract(BigInteger.ONE));
+        assertEquals(BigInteger.ZERO, score.call("balanceOf", alice.getAddress(), ids[1]));
+        assertEquals(BigInteger.ONE, score.call("totalSupply", ids[1]));
+    }
+
+    @Test
+    void singleOwnerToken() throws Exception {
+        Score score = sm.deploy(owner, IRC31SingleOwnerToken.class);
+        BigInteger id = BigInteger.ONE;
+        score.invoke(owner, "mint", id, BigInteger.ONE, "uri");
+        assertEquals(owner.getAddress(), score.call("ownerOf", id));
+        assertEquals(BigInteger.ONE, score.call("balanceOf", owner.getAddress(), id));
+
+        score.invoke(owner, "transferFrom", owner.getAddress(), alice.getAddress(), id, BigInteger.ONE, new byte[0]);
+        assertEquals(alice.getAddress(), score.call("ownerOf", id));
+        assertEquals(BigInteger.ZERO, score.call("balanceOf", owner.getAddress(), id));
+        assertEquals(BigInteger.ONE, score.call("balanceOf", alice.getAddress(), id));
+        assertArrayEquals(new Address[]{alice.getAddress()}, (Address[]) score.call("holdersOf", id, 0, 10));
+        assertArrayEquals(new BigInteger[]{id}, (BigInteger[]) score.call("tokensOf", alice.getAddress(), 0, 10));
+        assertEquals(0, score.call("tokenCountOf", owner.getAddress()));
+
+        // only the owner can move the whole token
+        assertThrows(UserRevertedException.class, () ->
+                score.invoke(owner, "transferFrom", owner.getAddress(), bob.getAddress(), id, BigInteger.ONE, new byte[0]));
+        assertThrows(UserRevertedException.class, () ->
+                score.invoke(alice, "transferFrom", alice.getAddress(), bob.getAddress(), id, BigInteger.TWO, new byte[0]));
+
+        score.invoke(alice, "burn", id, BigInteger.ONE);
+        assertEquals(ZERO_ADDRESS, score.call("ownerOf", id));
+        assertEquals(BigInteger.ZERO, score.call("balanceOf", alice.getAddress(), id));
+        assertEquals(BigInteger.ZERO, score.call("totalSupply", id));
+        assertEquals(0, score.call("holderCountOf", id));
+    }
+
+    @Test
+    void singleOwnerTokenSupplyGrows() throws Exception {
+        Score score = sm.deploy(owner, IRC31SingleOwnerToken.class);
+        BigInteger id = BigInteger.TWO;
+        score.invoke(owner, "mint", id, BigInteger.ONE, "uri");
+        score.invoke(owner, "transferFrom", owner.getAddress(), alice.getAddress(), id, BigInteger.ONE, new byte[0]);
+
+        // a second mint moves the token to the regular balances
+        score.invoke(owner, "mintTo", bob.getAddress(), id, BigInteger.TWO);
+        assertEquals(ZERO_ADDRESS, score.call("ownerOf", id));
+        assertEquals(BigInteger.ONE, score.call("balanceOf", alice.getAddress(), id));
+        assertEquals(BigInteger.TWO, score.call("balanceOf", bob.getAddress(), id));
+        assertEquals(BigInteger.valueOf(3), score.call("totalSupply", id));
+        assertEquals(2, score.call("holderCountOf", id));
+
+        score.invoke(alice, "transferFrom", alice.getAddress(), bob.getAddress(), id, BigInteger.ONE, new byte[0]);
+        assertEquals(BigInteger.valueOf(3), score.call("balanceOf", bob.getAddress(), id));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2021 ICONation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.token.irc31;
+
+import com.iconloop.score.test.Account;
+import com.iconloop.score.test.Score;
+import com.iconloop.score.test.ServiceManager;
+import com.iconloop.score.test.TestBase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import score.Address;
+import score.UserRevertedException;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class IRC31IndexTest extends TestBase {
+    private static final ServiceManager sm = getServiceManager();
+    private static final Account owner = sm.createAccount();
+    private static final Account alice = sm.createAccount();
+    private static final Account bob = sm.createAccount();
+
+    private Score score;
+
+    @BeforeEach
+    void setup() throws Exception {
+        score = sm.deploy(owner, IRC31IndexedToken.class);
+    }
+
+    private BigInteger[] tokensOf(Account account) {
+        return (BigInteger[]) score.call("tokensOf", account.getAddress(), 0, 100);
+    }
+
+    private void transfer(Account from, Account to, BigInteger id, BigInteger value) {
+        score.invoke(from, "transferFrom", from.getAddress(), to.getAddress(), id, value, new byte[0]);
+    }
+
+    @Test
+    void ownerIndex() {
+        BigInteger id1 = BigInteger.ONE;
+        BigInteger id2 = BigInteger.TWO;
+        score.invoke(owner, "mint", id1, BigInteger.TEN, "uri1");
+        score.invoke(owner, "mint", id2, BigInteger.TEN, "uri2");
+        assertArrayEquals(new BigInteger[]{id1, id2}, tokensOf(owner));
+        assertEquals(0, score.call("tokenCountOf", alice.getAddress()));
+
+        // a partial transfer adds the ID to the recipient only
+        transfer(owner, alice, id1, BigInteger.ONE);
+        assertArrayEquals(new BigInteger[]{id1, id2}, tokensOf(owner));
+        assertArrayEquals(new BigInteger[]{id1}, tokensOf(alice));
+
+        // moving the whole balance removes the ID from the sender
+        transfer(owner, alice, id2, BigInteger.TEN);
+        assertArrayEquals(new BigInteger[]{id1}, tokensOf(owner));
+        assertArrayEquals(new BigInteger[]{id1, id2}, tokensOf(alice));
+
+        // a zero value transfer does not add the ID
+        transfer(owner, alice, id2, BigInteger.ZERO);
+        assertArrayEquals(new BigInteger[]{id1}, tokensOf(owner));
+
+        // burning the whole balance removes the ID
+        score.invoke(alice, "burn", id1, BigInteger.ONE);
+        assertArrayEquals(new BigInteger[]{id2}, tokensOf(alice));
+        assertEquals(1, score.call("tokenCountOf", alice.getAddress()));
+    }
+
+    @Test
+    void ownerIndexPaging() {
+        for (int i = 0; i < 5; i++) {
+            score.invoke(owner, "mint", BigInteger.valueOf(i), BigInteger.ONE, "uri");
+        }
+        assertArrayEquals(new BigInteger[]{BigInteger.TWO, BigInteger.valueOf(3)},
+                (BigInteger[]) score.call("tokensOf", owner.getAddress(), 2, 2));
+        assertEquals(0, ((BigInteger[]) score.call("tokensOf", owner.getAddress(), 5, 2)).length);
+        assertThrows(UserRevertedException.class, () ->
+                score.call("tokensOf", owner.getAddress(), -1, 2));
+    }
+
+    private Address[] holdersOf(BigInteger id) {
+        return (Address[]) score.call("holdersOf", id, 0, 100);
+    }
+
+    @Test
+    void holderIndex() {
+        BigInteger id = BigInteger.ONE;
+        score.invoke(owner, "mint", id, BigInteger.TEN, "uri");
+        assertArrayEquals(new Address[]{owner.getAddress()}, holdersOf(id));
+
+        transfer(owner, alice, id, BigInteger.valueOf(3));
+        transfer(owner, bob, id, BigInteger.valueOf(3));
+        assertArrayEquals(new Address[]{owner.getAddress(), alice.getAddress(), bob.getAddress()}, holdersOf(id));
+        assertEquals(3, score.call("holderCountOf", id));
+
+        // a transfer between existing holders keeps the set as it is
+        transfer(alice, bob, id, BigInteger.ONE);
+        assertArrayEquals(new Address[]{owner.getAddress(), alice.getAddress(), bob.getAddress()}, holdersOf(id));
+
+        // the last holder is swapped into the place of the removed one
+        transfer(owner, alice, id, BigInteger.valueOf(4));
+        assertArrayEquals(new Address[]{bob.getAddress(), alice.getAddress()}, holdersOf(id));
+        assertArrayEquals(new Address[]{alice.getAddress()},
+                (Address[]) score.call("holdersOf", id, 1, 5));
+
+        score.invoke(bob, "burn", id, BigInteger.valueOf(4));
+        score.invoke(alice, "burn", id, BigInteger.valueOf(6));
+        assertEquals(0, score.call("holderCountOf", id));
+    }
+
+    @Test
+    void indexDisabled() throws Exception {
+        Score plain = sm.deploy(owner, IRC31SampleToken.class);
+        assertThrows(UserRevertedException.class, () ->
+                plain.call("tokensOf", owner.getAddress(), 0, 10));
+        assertThrows(UserRevertedException.class, () ->
+                plain.call("holdersOf", BigInteger.ONE, 0, 10));
+    }
+}
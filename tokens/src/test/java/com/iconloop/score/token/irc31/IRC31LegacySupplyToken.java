@@ -0,0 +1,43 @@
+/*
+ * Copyright 2021 ICONation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.token.irc31;
+
+import score.Context;
+import score.DictDB;
+import score.annotation.External;
+
+import java.math.BigInteger;
+
+public class IRC31LegacySupplyToken extends IRC31SampleToken {
+    private final DictDB<BigInteger, BigInteger> supplies = Context.newDictDB("total_supply", BigInteger.class);
+
+    // simulates a token minted before the supply was tracked
+    @External
+    public void dropSupply(BigInteger _id) {
+        supplies.set(_id, null);
+    }
+
+    @External(readonly=true)
+    public boolean supplyRecorded(BigInteger _id) {
+        return supplies.get(_id) != null;
+    }
+
+    @External
+    public void migrateTotalSupply(BigInteger[] _ids, BigInteger[] _supplies) {
+        _migrateTotalSupply(_ids, _supplies);
+    }
+}
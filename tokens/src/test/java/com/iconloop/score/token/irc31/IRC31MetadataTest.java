@@ -25,6 +25,7 @@ import score.UserRevertedException;
 import java.math.BigInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
@@ -108,6 +109,45 @@ public class IRC31MetadataTest extends MultiTokenTest {
         assertEquals(score.call("tokenURI", newId), newURI);
     }
 
+    @Test
+    void testBaseURI() {
+        BigInteger newId = BigInteger.valueOf(0x1a2b);
+        score.invoke(owner, "mint", newId, BigInteger.TEN, "");
+        assertNull(score.call("tokenURI", newId));
+
+        score.invoke(owner, "setBaseURI", "https://craft.network/{id}.json");
+        assertEquals("https://craft.network/" + "0".repeat(60) + "1a2b.json", score.call("tokenURI", newId));
+
+        // the URI set for the token overrides the base URI
+        score.invoke(owner, "setTokenURI", newId, "ipfs://item");
+        assertEquals("ipfs://item", score.call("tokenURI", newId));
+
+        assertThrows(UserRevertedException.class, () ->
+                score.invoke(eve, "setBaseURI", "https://eve.network/{id}"));
+    }
+
+    @Test
+    void testBaseURIOfNegativeId() {
+        score.invoke(owner, "setBaseURI", "https://craft.network/{id}.json");
+
+        // a negative ID is written as its 256-bit two's complement
+        BigInteger negativeId = BigInteger.valueOf(-5);
+        score.invoke(owner, "mint", negativeId, BigInteger.TEN, "");
+        assertEquals("https://craft.network/" + "f".repeat(63) + "b.json", score.call("tokenURI", negativeId));
+
+        BigInteger minId = BigInteger.ONE.shiftLeft(255).negate();
+        score.invoke(owner, "mint", minId, BigInteger.TEN, "");
+        assertEquals("https://craft.network/8" + "0".repeat(63) + ".json", score.call("tokenURI", minId));
+
+        // IDs which do not fit in 256 bits have no substitution
+        BigInteger tooSmall = minId.subtract(BigInteger.ONE);
+        score.invoke(owner, "mint", tooSmall, BigInteger.TEN, "");
+        assertThrows(UserRevertedException.class, () -> score.call("tokenURI", tooSmall));
+        BigInteger tooLarge = BigInteger.ONE.shiftLeft(256);
+        score.invoke(owner, "mint", tooLarge, BigInteger.TEN, "");
+        assertThrows(UserRevertedException.class, () -> score.call("tokenURI", tooLarge));
+    }
+
     @Test
     void testSetTokenURIOnlyOwner() {
         BigInteger supply = BigInteger.valueOf(100);
@@ -17,6 +17,7 @@
 package com.iconloop.score.token.irc31;
 
 import com.iconloop.score.test.Account;
+import com.iconloop.score.test.Score;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import score.UserRevertedException;
@@ -24,6 +25,7 @@ import score.UserRevertedException;
 import java.math.BigInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.reset;
 
@@ -40,11 +42,16 @@ public class IRC31MintBurnTest extends MultiTokenTest {
         assertEquals(amount, balance);
     }
 
+    void checkSupply(BigInteger id, BigInteger amount) {
+        assertEquals(amount, score.call("totalSupply", id));
+    }
+
     @Test
     void testMint() {
         BigInteger supply = BigInteger.valueOf((int) (Math.random() * 100 + 1));
         BigInteger newId = mintToken(supply);
         checkBalance(owner, newId, supply);
+        checkSupply(newId, supply);
     }
 
     @Test
@@ -57,6 +64,29 @@ public class IRC31MintBurnTest extends MultiTokenTest {
                 score.invoke(owner, "mint", newId, supply, "uri"));
     }
 
+    @Test
+    void testLegacySupply() throws Exception {
+        Score legacy = sm.deploy(owner, IRC31LegacySupplyToken.class);
+        BigInteger id = BigInteger.valueOf(7);
+        legacy.invoke(owner, "mint", id, BigInteger.TEN, "");
+        legacy.invoke(owner, "dropSupply", id);
+
+        // a burn cannot drive an unrecorded supply negative
+        assertThrows(UserRevertedException.class, () ->
+                legacy.invoke(owner, "burn", id, BigInteger.ONE));
+
+        legacy.invoke(owner, "migrateTotalSupply", new BigInteger[]{id}, new BigInteger[]{BigInteger.TEN});
+        assertThrows(UserRevertedException.class, () ->
+                legacy.invoke(owner, "migrateTotalSupply", new BigInteger[]{id}, new BigInteger[]{BigInteger.TEN}));
+        legacy.invoke(owner, "burn", id, BigInteger.ONE);
+        assertEquals(BigInteger.valueOf(9), legacy.call("totalSupply", id));
+
+        // burning the whole supply reclaims the slot
+        legacy.invoke(owner, "burn", id, BigInteger.valueOf(9));
+        assertEquals(BigInteger.ZERO, legacy.call("totalSupply", id));
+        assertFalse((boolean) legacy.call("supplyRecorded", id));
+    }
+
     @Test
     void testBurnInvalidToken() {
         assertThrows(UserRevertedException.class, () ->
@@ -71,6 +101,7 @@ public class IRC31MintBurnTest extends MultiTokenTest {
         // burn with creator
         BigInteger burn_amount = BigInteger.ONE;
         score.invoke(owner, "burn", newId, burn_amount);
+        checkSupply(newId, supply.subtract(burn_amount));
     }
 
     @Test
@@ -79,6 +110,7 @@ public class IRC31MintBurnTest extends MultiTokenTest {
         BigInteger newId = mintToken(supply);
 
         score.invoke(owner, "burn", newId, supply);
+        checkSupply(newId, BigInteger.ZERO);
     }
 
     @Test
@@ -125,4 +157,73 @@ public class IRC31MintBurnTest extends MultiTokenTest {
         checkBalance(alice, newId, supply.subtract(burn_amount));
         checkBalance(owner, newId, BigInteger.ZERO);
     }
+
+    @Test
+    void testTotalSupplyAfterTransfer() {
+        BigInteger supply = BigInteger.valueOf((int) (Math.random() * 100 + 2));
+        BigInteger newId = mintToken(supply);
+        BigInteger otherId = mintToken(BigInteger.TEN);
+        checkSupply(getTokenId(), BigInteger.ZERO);
+
+        // transfers do not change the supply
+        score.invoke(owner, "transferFrom", owner.getAddress(), alice.getAddress(), newId, BigInteger.ONE, new byte[0]);
+        checkSupply(newId, supply);
+
+        BigInteger[] supplies = (BigInteger[]) score.call("totalSupplyBatch", (Object) new BigInteger[]{newId, otherId});
+        assertEquals(supply, supplies[0]);
+        assertEquals(BigInteger.TEN, supplies[1]);
+    }
+
+    @Test
+    void testMintBatch() {
+        BigInteger[] ids = new BigInteger[]{getTokenId(), getTokenId().add(BigInteger.valueOf(1000000))};
+        BigInteger[] supplies = new BigInteger[]{BigInteger.TEN, BigInteger.TWO};
+        score.invoke(owner, "mintBatch", ids, supplies);
+        for (int i = 0; i < ids.length; i++) {
+            checkBalance(owner, ids[i], supplies[i]);
+            checkSupply(ids[i], supplies[i]);
+        }
+        // the caller is recorded as the creator
+        score.invoke(owner, "setTokenURI", ids[1], "uri");
+        assertThrows(UserRevertedException.class, () ->
+                score.invoke(alice, "setTokenURI", ids[0], "uri"));
+    }
+
+    @Test
+    void testMintBatchInvalid() {
+        BigInteger newId = mintToken(BigInteger.ONE);
+        BigInteger otherId = newId.add(BigInteger.valueOf(1000000));
+
+        // already minted
+        assertThrows(UserRevertedException.class, () ->
+                score.invoke(owner, "mintBatch", new BigInteger[]{otherId, newId}, new BigInteger[]{BigInteger.ONE, BigInteger.ONE}));
+        // repeated in the batch
+        assertThrows(UserRevertedException.class, () ->
+                score.invoke(owner, "mintBatch", new BigInteger[]{otherId, otherId}, new BigInteger[]{BigInteger.ONE, BigInteger.ONE}));
+        assertThrows(UserRevertedException.class, () ->
+                score.invoke(owner, "mintBatch", new BigInteger[]{otherId}, new BigInteger[]{BigInteger.ZERO}));
+        assertThrows(UserRevertedException.class, () ->
+                score.invoke(owner, "mintBatch", new BigInteger[]{otherId}, new BigInteger[0]));
+        checkSupply(otherId, BigInteger.ZERO);
+    }
+
+    @Test
+    void testBurnBatch() {
+        BigInteger id1 = mintToken(BigInteger.TEN);
+        BigInteger id2 = mintToken(BigInteger.valueOf(5));
+
+        // repeated IDs are summed up
+        score.invoke(owner, "burnBatch", new BigInteger[]{id1, id2, id1},
+                new BigInteger[]{BigInteger.ONE, BigInteger.valueOf(5), BigInteger.TWO});
+        checkBalance(owner, id1, BigInteger.valueOf(7));
+        checkBalance(owner, id2, BigInteger.ZERO);
+        checkSupply(id1, BigInteger.valueOf(7));
+        checkSupply(id2, BigInteger.ZERO);
+
+        assertThrows(UserRevertedException.class, () ->
+                score.invoke(owner, "burnBatch", new BigInteger[]{id1, id1},
+                        new BigInteger[]{BigInteger.valueOf(4), BigInteger.valueOf(4)}));
+        assertThrows(UserRevertedException.class, () ->
+                score.invoke(owner, "burnBatch", new BigInteger[]{getTokenId()}, new BigInteger[]{BigInteger.ONE}));
+    }
 }
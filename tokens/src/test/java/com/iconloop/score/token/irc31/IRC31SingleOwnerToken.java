@@ -0,0 +1,35 @@
+/*
+ * Copyright 2021 ICONation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.token.irc31;
+
+import score.Address;
+import score.annotation.External;
+
+import java.math.BigInteger;
+
+public class IRC31SingleOwnerToken extends IRC31IndexedToken {
+
+    @Override
+    protected boolean _singleOwnerEnabled() {
+        return true;
+    }
+
+    @External
+    public void mintTo(Address _to, BigInteger _id, BigInteger _amount) {
+        _mint(_to, _id, _amount);
+    }
+}
@@ -252,6 +252,46 @@ public class IRC31TransferTest extends MultiTokenTest {
         }
     }
 
+    @Test
+    void testTransferFromBatchRepeatedIds() {
+        BigInteger supply = BigInteger.valueOf(100);
+        BigInteger id1 = mintToken(supply);
+        BigInteger id2 = mintToken(supply);
+
+        BigInteger[] ids = {id1, id2, id1, id1};
+        BigInteger[] values = {BigInteger.valueOf(10), BigInteger.valueOf(20), BigInteger.valueOf(30), BigInteger.ZERO};
+        score.invoke(owner, "transferFromBatch", owner.getAddress(), alice.getAddress(), ids, values, "test".getBytes());
+
+        assertEquals(BigInteger.valueOf(60), score.call("balanceOf", owner.getAddress(), id1));
+        assertEquals(BigInteger.valueOf(40), score.call("balanceOf", alice.getAddress(), id1));
+        assertEquals(BigInteger.valueOf(80), score.call("balanceOf", owner.getAddress(), id2));
+        assertEquals(BigInteger.valueOf(20), score.call("balanceOf", alice.getAddress(), id2));
+
+        // each value fits the balance, but the sum does not
+        BigInteger[] ids2 = {id1, id1};
+        BigInteger[] values2 = {BigInteger.valueOf(30), BigInteger.valueOf(31)};
+        assertThrows(UserRevertedException.class, () ->
+                score.invoke(owner, "transferFromBatch", owner.getAddress(), alice.getAddress(), ids2, values2, "test".getBytes()));
+
+        // a negative value cannot offset another one
+        BigInteger[] values3 = {BigInteger.valueOf(70), BigInteger.valueOf(-10)};
+        assertThrows(UserRevertedException.class, () ->
+                score.invoke(owner, "transferFromBatch", owner.getAddress(), alice.getAddress(), ids2, values3, "test".getBytes()));
+        assertEquals(BigInteger.valueOf(60), score.call("balanceOf", owner.getAddress(), id1));
+
+        // the event keeps the requested ids and values
+        ArgumentCaptor<byte[]> idsCaptor = ArgumentCaptor.forClass(byte[].class);
+        ArgumentCaptor<byte[]> valuesCaptor = ArgumentCaptor.forClass(byte[].class);
+        verify(spy).TransferBatch(
+                ArgumentCaptor.forClass(Address.class).capture(),
+                ArgumentCaptor.forClass(Address.class).capture(),
+                ArgumentCaptor.forClass(Address.class).capture(),
+                idsCaptor.capture(),
+                valuesCaptor.capture());
+        assertArrayEquals(IRC31Basic.rlpEncode(ids), idsCaptor.getValue());
+        assertArrayEquals(IRC31Basic.rlpEncode(values), valuesCaptor.getValue());
+    }
+
     @Test
     void testTransferFromBatchZeroAddress() {
         BigInteger supply = BigInteger.valueOf(100);
@@ -317,4 +357,83 @@ public class IRC31TransferTest extends MultiTokenTest {
                 ids, values, "test".getBytes());
         assertArrayEquals(values, score.call(BigInteger[].class, "balanceOfBatch", owners, ids));
     }
+
+    @Test
+    void testTransferToMany() {
+        BigInteger supply = BigInteger.valueOf(100);
+        BigInteger id1 = mintToken(supply);
+        BigInteger id2 = mintToken(supply);
+
+        Address[] to = {alice.getAddress(), bob.getAddress(), eve.getAddress(), alice.getAddress()};
+        BigInteger[] ids = {id1, id1, id1, id2};
+        BigInteger[] values = {BigInteger.valueOf(10), BigInteger.valueOf(20), BigInteger.valueOf(30), BigInteger.valueOf(5)};
+        score.invoke(owner, "transferToMany", owner.getAddress(), to, ids, values, "test".getBytes());
+
+        assertEquals(BigInteger.valueOf(40), score.call("balanceOf", owner.getAddress(), id1));
+        assertEquals(BigInteger.valueOf(10), score.call("balanceOf", alice.getAddress(), id1));
+        assertEquals(BigInteger.valueOf(20), score.call("balanceOf", bob.getAddress(), id1));
+        assertEquals(BigInteger.valueOf(30), score.call("balanceOf", eve.getAddress(), id1));
+        assertEquals(BigInteger.valueOf(95), score.call("balanceOf", owner.getAddress(), id2));
+        assertEquals(BigInteger.valueOf(5), score.call("balanceOf", alice.getAddress(), id2));
+
+        // one event per transfer
+        verify(spy, times(4)).TransferSingle(
+                ArgumentCaptor.forClass(Address.class).capture(),
+                ArgumentCaptor.forClass(Address.class).capture(),
+                ArgumentCaptor.forClass(Address.class).capture(),
+                ArgumentCaptor.forClass(BigInteger.class).capture(),
+                ArgumentCaptor.forClass(BigInteger.class).capture());
+    }
+
+    @Test
+    void testTransferToManyRepeatedRecipient() {
+        BigInteger supply = BigInteger.valueOf(100);
+        BigInteger id1 = mintToken(supply);
+        BigInteger id2 = mintToken(supply);
+
+        // the credits of a repeated (recipient, id) pair are summed up before they are written
+        Address[] to = {alice.getAddress(), bob.getAddress(), alice.getAddress(), alice.getAddress()};
+        BigInteger[] ids = {id1, id1, id2, id1};
+        BigInteger[] values = {BigInteger.valueOf(10), BigInteger.valueOf(20), BigInteger.valueOf(5), BigInteger.valueOf(7)};
+        score.invoke(owner, "transferToMany", owner.getAddress(), to, ids, values, "test".getBytes());
+
+        assertEquals(BigInteger.valueOf(63), score.call("balanceOf", owner.getAddress(), id1));
+        assertEquals(BigInteger.valueOf(17), score.call("balanceOf", alice.getAddress(), id1));
+        assertEquals(BigInteger.valueOf(20), score.call("balanceOf", bob.getAddress(), id1));
+        assertEquals(BigInteger.valueOf(95), score.call("balanceOf", owner.getAddress(), id2));
+        assertEquals(BigInteger.valueOf(5), score.call("balanceOf", alice.getAddress(), id2));
+
+        // still one event per transfer
+        verify(spy, times(4)).TransferSingle(
+                ArgumentCaptor.forClass(Address.class).capture(),
+                ArgumentCaptor.forClass(Address.class).capture(),
+                ArgumentCaptor.forClass(Address.class).capture(),
+                ArgumentCaptor.forClass(BigInteger.class).capture(),
+                ArgumentCaptor.forClass(BigInteger.class).capture());
+    }
+
+    @Test
+    void testTransferToManyInvalid() {
+        BigInteger supply = BigInteger.valueOf(100);
+        BigInteger newId = mintToken(supply);
+        Address[] to = {alice.getAddress(), bob.getAddress()};
+        BigInteger[] ids = {newId, newId};
+
+        // each value fits the balance, but the sum does not
+        assertThrows(UserRevertedException.class, () ->
+                score.invoke(owner, "transferToMany", owner.getAddress(), to, ids,
+                        new BigInteger[]{BigInteger.valueOf(50), BigInteger.valueOf(51)}, "test".getBytes()));
+        assertThrows(UserRevertedException.class, () ->
+                score.invoke(owner, "transferToMany", owner.getAddress(), to, ids,
+                        new BigInteger[]{BigInteger.ONE}, "test".getBytes()));
+        assertThrows(UserRevertedException.class, () ->
+                score.invoke(owner, "transferToMany", owner.getAddress(),
+                        new Address[]{alice.getAddress(), IRC31Basic.ZERO_ADDRESS}, ids,
+                        new BigInteger[]{BigInteger.ONE, BigInteger.ONE}, "test".getBytes()));
+        // no operator approval
+        assertThrows(UserRevertedException.class, () ->
+                score.invoke(alice, "transferToMany", owner.getAddress(), to, ids,
+                        new BigInteger[]{BigInteger.ONE, BigInteger.ONE}, "test".getBytes()));
+        assertEquals(supply, score.call("balanceOf", owner.getAddress(), newId));
+    }
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2021 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.util;
+
+import com.iconloop.score.test.Account;
+import com.iconloop.score.test.Score;
+import com.iconloop.score.test.ServiceManager;
+import com.iconloop.score.test.TestBase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import score.Context;
+import score.UserRevertedException;
+import score.annotation.External;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BitSetTest extends TestBase {
+    private static final ServiceManager sm = getServiceManager();
+    private static final Account owner = sm.createAccount();
+    private Score score;
+
+    public static class BitSetScore {
+        private final BitSet flags = new BitSet("flags");
+
+        @External(readonly=true)
+        public boolean get(BigInteger _index) {
+            return flags.get(_index);
+        }
+
+        @External
+        public void set(BigInteger _index) {
+            flags.set(_index);
+        }
+
+        @External
+        public void claim(BigInteger _index) {
+            // reverts if the flag is already set
+            Context.require(flags.set(_index), "Already claimed");
+        }
+
+        @External
+        public void clear(BigInteger _index) {
+            flags.clear(_index);
+        }
+
+        @External
+        public void setRange(BigInteger _from, BigInteger _to) {
+            flags.setRange(_from, _to);
+        }
+
+        @External
+        public void clearRange(BigInteger _from, BigInteger _to) {
+            flags.clearRange(_from, _to);
+        }
+
+        @External(readonly=true)
+        public int count(BigInteger _from, BigInteger _to) {
+            return flags.count(_from, _to);
+        }
+    }
+
+    @BeforeEach
+    void setup() throws Exception {
+        score = sm.deploy(owner, BitSetScore.class);
+    }
+
+    private static BigInteger n(long value) {
+        return BigInteger.valueOf(value);
+    }
+
+    @Test
+    void setAndClear() {
+        score.invoke(owner, "set", n(3));
+        score.invoke(owner, "set", n(300));
+        assertTrue((boolean) score.call("get", n(3)));
+        assertTrue((boolean) score.call("get", n(300)));
+        assertFalse((boolean) score.call("get", n(4)));
+        assertEquals(2, score.call("count", n(0), n(1000)));
+
+        score.invoke(owner, "clear", n(3));
+        assertFalse((boolean) score.call("get", n(3)));
+        assertEquals(1, score.call("count", n(0), n(1000)));
+        assertThrows(UserRevertedException.class, () -> score.call("get", n(-1)));
+    }
+
+    @Test
+    void claim() {
+        score.invoke(owner, "claim", n(42));
+        assertThrows(UserRevertedException.class, () -> score.invoke(owner, "claim", n(42)));
+    }
+
+    @Test
+    void ranges() {
+        score.invoke(owner, "setRange", n(250), n(10_000));
+        assertEquals(9_750, score.call("count", n(0), n(20_000)));
+        assertFalse((boolean) score.call("get", n(249)));
+        assertTrue((boolean) score.call("get", n(250)));
+        assertTrue((boolean) score.call("get", n(9_999)));
+        assertFalse((boolean) score.call("get", n(10_000)));
+
+        score.invoke(owner, "clearRange", n(256), n(512));
+        assertEquals(6, score.call("count", n(250), n(512)));
+        assertEquals(9_750 - 256, score.call("count", n(0), n(10_000)));
+        assertEquals(0, score.call("count", n(5), n(5)));
+        assertThrows(UserRevertedException.class, () -> score.invoke(owner, "setRange", n(5), n(4)));
+    }
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright 2021 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.util;
+
+import com.iconloop.score.test.Account;
+import com.iconloop.score.test.Score;
+import com.iconloop.score.test.ServiceManager;
+import com.iconloop.score.test.TestBase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import score.Address;
+import score.Context;
+import score.UserRevertedException;
+import score.VarDB;
+import score.annotation.External;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class EnumerableTest extends TestBase {
+    private static final ServiceManager sm = getServiceManager();
+    private static final Account owner = sm.createAccount();
+    private Score score;
+
+    public static class EnumerableScore {
+        private final EnumerableSet<BigInteger> set = new EnumerableSet<>("set", BigInteger.class);
+        private final EnumerableMap<BigInteger, String> map = new EnumerableMap<>("map", BigInteger.class, String.class);
+        private final CompactEnumerableMap<BigInteger, String> compactMap =
+                new CompactEnumerableMap<>("compact", BigInteger.class, String.class);
+        private final EnumerableSetBranch<String, BigInteger> branch = new EnumerableSetBranch<>("branch", BigInteger.class);
+        private final VarDB<AddressSet> whitelist = Context.newVarDB("whitelist", AddressSet.class);
+
+        public EnumerableScore() {
+            if (whitelist.get() == null) {
+                whitelist.set(new AddressSet("whitelist_set"));
+            }
+        }
+
+        private static BigInteger[] toArray(List<BigInteger> list) {
+            BigInteger[] array = new BigInteger[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = list.get(i);
+            }
+            return array;
+        }
+
+        @External(readonly=true)
+        public BigInteger[] setSlice(int _offset, int _limit) {
+            return toArray(set.slice(_offset, _limit));
+        }
+
+        @External(readonly=true)
+        public boolean setContains(BigInteger _value) {
+            return set.contains(_value);
+        }
+
+        @External(readonly=true)
+        public int setIndexOf(BigInteger _value) {
+            Integer index = set.indexOf(_value);
+            return (index != null) ? index : -1;
+        }
+
+        @External
+        public void setAddAll(BigInteger[] _values) {
+            set.addAll(_values);
+        }
+
+        @External
+        public void setRemoveAll(BigInteger[] _values) {
+            set.removeAll(_values);
+        }
+
+        @External
+        public void setPop() {
+            set.pop();
+        }
+
+        @External
+        public void setClear() {
+            set.clear();
+        }
+
+        @External(readonly=true)
+        public BigInteger[] branchSlice(String _key, int _offset, int _limit) {
+            return toArray(branch.slice(_key, _offset, _limit));
+        }
+
+        @External(readonly=true)
+        public int branchIndexOf(String _key, BigInteger _value) {
+            Integer index = branch.indexOf(_key, _value);
+            return (index != null) ? index : -1;
+        }
+
+        @External
+        public void branchAddAll(String _key, BigInteger[] _values) {
+            branch.addAll(_key, _values);
+        }
+
+        @External
+        public void branchRemoveAll(String _key, BigInteger[] _values) {
+            branch.removeAll(_key, _values);
+        }
+
+        @External
+        public void whitelistAdd(Address _address) {
+            whitelist.get().add(_address);
+        }
+
+        @External
+        public void whitelistClear() {
+            whitelist.get().clear();
+        }
+
+        @External(readonly=true)
+        public Address[] whitelistValues() {
+            AddressSet addresses = whitelist.get();
+            Address[] values = new Address[addresses.length()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = addresses.at(i);
+            }
+            return values;
+        }
+
+        @External(readonly=true)
+        public BigInteger[] mapSlice(boolean _compact, int _offset, int _limit) {
+            return toArray(_compact ? compactMap.slice(_offset, _limit) : map.slice(_offset, _limit));
+        }
+
+        @External(readonly=true)
+        public String mapGet(boolean _compact, BigInteger _key) {
+            return _compact ? compactMap.get(_key) : map.get(_key);
+        }
+
+        @External
+        public void mapSetAll(boolean _compact, BigInteger[] _keys, String[] _values) {
+            if (_compact) {
+                compactMap.setAll(_keys, _values);
+            } else {
+                map.setAll(_keys, _values);
+            }
+        }
+
+        @External
+        public void mapRemoveAll(boolean _compact, BigInteger[] _keys) {
+            if (_compact) {
+                compactMap.removeAll(_keys);
+            } else {
+                map.removeAll(_keys);
+            }
+        }
+
+        @External
+        public void compactReplace(BigInteger _key, String _oldValue, String _newValue) {
+            Context.require(compactMap.replace(_key, _oldValue, _newValue), "Not replaced");
+        }
+
+        @External
+        public void compactRemove(BigInteger _key, String _value) {
+            Context.require(compactMap.remove(_key, _value), "Not removed");
+        }
+
+        @External
+        public void mapClear(boolean _compact) {
+            if (_compact) {
+                compactMap.clear();
+            } else {
+                map.clear();
+            }
+        }
+    }
+
+    @BeforeEach
+    void setup() throws Exception {
+        score = sm.deploy(owner, EnumerableScore.class);
+    }
+
+    private static BigInteger[] ids(int... values) {
+        BigInteger[] result = new BigInteger[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = BigInteger.valueOf(values[i]);
+        }
+        return result;
+    }
+
+    private BigInteger[] setValues() {
+        return (BigInteger[]) score.call("setSlice", 0, 100);
+    }
+
+    @Test
+    void setBulk() {
+        score.invoke(owner, "setAddAll", (Object) ids(1, 2, 3, 2, 4, 5, 6));
+        assertArrayEquals(ids(1, 2, 3, 4, 5, 6), setValues());
+        assertArrayEquals(ids(3, 4), (BigInteger[]) score.call("setSlice", 2, 2));
+        assertArrayEquals(ids(), (BigInteger[]) score.call("setSlice", 6, 2));
+        assertThrows(UserRevertedException.class, () -> score.call("setSlice", 0, -1));
+
+        // the trailing values to be removed are not moved into the holes
+        score.invoke(owner, "setRemoveAll", (Object) ids(2, 6, 7, 1, 2));
+        assertArrayEquals(ids(4, 5, 3), setValues());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, score.call("setIndexOf", setValues()[i]));
+        }
+        assertEquals(-1, score.call("setIndexOf", BigInteger.ONE));
+
+        score.invoke(owner, "setRemoveAll", (Object) ids(3, 4, 5));
+        assertArrayEquals(ids(), setValues());
+        score.invoke(owner, "setAddAll", (Object) ids(8, 9));
+        assertArrayEquals(ids(8, 9), setValues());
+    }
+
+    @Test
+    void branchBulk() {
+        score.invoke(owner, "branchAddAll", "a", ids(1, 2, 3, 4, 5, 6));
+        score.invoke(owner, "branchAddAll", "b", ids(1, 2));
+
+        // the trailing values to be removed are not moved into the holes
+        score.invoke(owner, "branchRemoveAll", "a", ids(1, 6, 7, 2, 1));
+        assertArrayEquals(ids(5, 4, 3), (BigInteger[]) score.call("branchSlice", "a", 0, 10));
+        for (int i = 0; i < 3; i++) {
+            var value = ((BigInteger[]) score.call("branchSlice", "a", 0, 10))[i];
+            assertEquals(i, score.call("branchIndexOf", "a", value));
+        }
+        assertEquals(-1, score.call("branchIndexOf", "a", BigInteger.ONE));
+        assertArrayEquals(ids(1, 2), (BigInteger[]) score.call("branchSlice", "b", 0, 10));
+
+        score.invoke(owner, "branchRemoveAll", "a", ids(3, 4, 5, 8));
+        assertArrayEquals(ids(), (BigInteger[]) score.call("branchSlice", "a", 0, 10));
+        score.invoke(owner, "branchAddAll", "a", ids(9));
+        assertEquals(0, score.call("branchIndexOf", "a", BigInteger.valueOf(9)));
+    }
+
+    @Test
+    void setClear() {
+        score.invoke(owner, "setAddAll", (Object) ids(1, 2, 3));
+        score.invoke(owner, "setClear");
+        assertArrayEquals(ids(), setValues());
+        assertEquals(false, score.call("setContains", BigInteger.TWO));
+        score.invoke(owner, "setAddAll", (Object) ids(3));
+        assertEquals(0, score.call("setIndexOf", BigInteger.valueOf(3)));
+    }
+
+    @Test
+    void setPop() {
+        score.invoke(owner, "setAddAll", (Object) ids(1, 2, 3));
+        score.invoke(owner, "setPop");
+        assertArrayEquals(ids(1, 2), setValues());
+        assertEquals(false, score.call("setContains", BigInteger.valueOf(3)));
+        score.invoke(owner, "setPop");
+        score.invoke(owner, "setPop");
+        // popping an empty set is a no-op
+        score.invoke(owner, "setPop");
+        assertArrayEquals(ids(), setValues());
+    }
+
+    private void mapBulk(boolean compact) {
+        score.invoke(owner, "mapSetAll", compact, ids(1, 2, 3, 4), new String[]{"a", "b", "c", "d"});
+        score.invoke(owner, "mapSetAll", compact, ids(2, 5), new String[]{"B", "e"});
+        assertArrayEquals(ids(1, 2, 3, 4, 5), (BigInteger[]) score.call("mapSlice", compact, 0, 10));
+        assertEquals("B", score.call("mapGet", compact, BigInteger.TWO));
+        assertThrows(UserRevertedException.class, () ->
+                score.invoke(owner, "mapSetAll", compact, ids(6), new String[0]));
+
+        score.invoke(owner, "mapRemoveAll", compact, ids(1, 5));
+        assertArrayEquals(ids(4, 2, 3), (BigInteger[]) score.call("mapSlice", compact, 0, 10));
+        assertNull(score.call("mapGet", compact, BigInteger.ONE));
+        assertEquals("d", score.call("mapGet", compact, BigInteger.valueOf(4)));
+
+        // the moved key keeps working after the swap
+        score.invoke(owner, "mapRemoveAll", compact, ids(4));
+        assertArrayEquals(ids(3, 2), (BigInteger[]) score.call("mapSlice", compact, 0, 10));
+        assertEquals("c", score.call("mapGet", compact, BigInteger.valueOf(3)));
+
+        score.invoke(owner, "mapClear", compact);
+        assertArrayEquals(ids(), (BigInteger[]) score.call("mapSlice", compact, 0, 10));
+        assertNull(score.call("mapGet", compact, BigInteger.TWO));
+    }
+
+    @Test
+    void mapBulk() {
+        mapBulk(false);
+    }
+
+    @Test
+    void compactMapBulk() {
+        mapBulk(true);
+    }
+
+    @Test
+    void compactMapConditional() {
+        score.invoke(owner, "mapSetAll", true, ids(1, 2, 3), new String[]{"a", "b", "c"});
+        score.invoke(owner, "compactReplace", BigInteger.TWO, "b", "B");
+        assertEquals("B", score.call("mapGet", true, BigInteger.TWO));
+        assertThrows(UserRevertedException.class, () ->
+                score.invoke(owner, "compactReplace", BigInteger.TWO, "b", "x"));
+        assertThrows(UserRevertedException.class, () ->
+                score.invoke(owner, "compactReplace", BigInteger.valueOf(4), "d", "x"));
+        // the index is kept by a replace
+        assertArrayEquals(ids(1, 2, 3), (BigInteger[]) score.call("mapSlice", true, 0, 10));
+
+        assertThrows(UserRevertedException.class, () ->
+                score.invoke(owner, "compactRemove", BigInteger.ONE, "b"));
+        score.invoke(owner, "compactRemove", BigInteger.ONE, "a");
+        assertArrayEquals(ids(3, 2), (BigInteger[]) score.call("mapSlice", true, 0, 10));
+        assertEquals("c", score.call("mapGet", true, BigInteger.valueOf(3)));
+        assertNull(score.call("mapGet", true, BigInteger.ONE));
+    }
+
+    @Test
+    void addressSet() {
+        Address alice = sm.createAccount().getAddress();
+        Address bob = sm.createAccount().getAddress();
+        // the set is restored from the VarDB on each access
+        score.invoke(owner, "whitelistAdd", alice);
+        score.invoke(owner, "whitelistAdd", bob);
+        score.invoke(owner, "whitelistAdd", alice);
+        assertArrayEquals(new Address[]{alice, bob}, (Address[]) score.call("whitelistValues"));
+
+        score.invoke(owner, "whitelistClear");
+        assertArrayEquals(new Address[0], (Address[]) score.call("whitelistValues"));
+    }
+}
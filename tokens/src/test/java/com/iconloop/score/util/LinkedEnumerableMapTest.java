@@ -0,0 +1,231 @@
+/*
+ * Copyright 2021 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.util;
+
+import com.iconloop.score.test.Account;
+import com.iconloop.score.test.Score;
+import com.iconloop.score.test.ServiceManager;
+import com.iconloop.score.test.TestBase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import score.UserRevertedException;
+import score.annotation.External;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LinkedEnumerableMapTest extends TestBase {
+    private static final ServiceManager sm = getServiceManager();
+    private static final Account owner = sm.createAccount();
+    private Score score;
+
+    public static class LinkedMapScore {
+        private final LinkedEnumerableMap<BigInteger, String> map =
+                new LinkedEnumerableMap<>("map", BigInteger.class, String.class);
+
+        @External
+        public void set(BigInteger _key, String _value) {
+            map.set(_key, _value);
+        }
+
+        @External
+        public void remove(BigInteger _key) {
+            map.remove(_key);
+        }
+
+        @External
+        public void clear() {
+            map.clear();
+        }
+
+        @External(readonly=true)
+        public int length() {
+            return map.length();
+        }
+
+        @External(readonly=true)
+        public String get(BigInteger _key) {
+            return map.get(_key);
+        }
+
+        @External(readonly=true)
+        public boolean contains(BigInteger _key) {
+            return map.contains(_key);
+        }
+
+        @External(readonly=true)
+        public BigInteger first() {
+            return map.first();
+        }
+
+        @External(readonly=true)
+        public BigInteger last() {
+            return map.last();
+        }
+
+        @External(readonly=true)
+        public Map<String, Object> page(long _cursor, int _limit) {
+            var page = map.page(_cursor, _limit);
+            BigInteger[] keys = new BigInteger[page.getKeys().size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = page.getKeys().get(i);
+            }
+            return Map.of("keys", keys, "cursor", page.getCursor());
+        }
+    }
+
+    @BeforeEach
+    void setup() throws Exception {
+        score = sm.deploy(owner, LinkedMapScore.class);
+    }
+
+    private static BigInteger[] keys(int... values) {
+        BigInteger[] result = new BigInteger[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = BigInteger.valueOf(values[i]);
+        }
+        return result;
+    }
+
+    private void set(int... keys) {
+        for (int key : keys) {
+            score.invoke(owner, "set", BigInteger.valueOf(key), "v" + key);
+        }
+    }
+
+    private void remove(int... keys) {
+        for (int key : keys) {
+            score.invoke(owner, "remove", BigInteger.valueOf(key));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> page(long cursor, int limit) {
+        return (Map<String, Object>) score.call("page", cursor, limit);
+    }
+
+    private BigInteger[] all() {
+        return (BigInteger[]) page(0, 1000).get("keys");
+    }
+
+    @Test
+    void insertionOrder() {
+        assertArrayEquals(keys(), all());
+        assertNull(score.call("first"));
+        assertNull(score.call("last"));
+
+        set(30, 10, 20);
+        assertArrayEquals(keys(30, 10, 20), all());
+        assertEquals(3, score.call("length"));
+        assertEquals(BigInteger.valueOf(30), score.call("first"));
+        assertEquals(BigInteger.valueOf(20), score.call("last"));
+
+        // updating a value keeps the position
+        score.invoke(owner, "set", BigInteger.valueOf(30), "updated");
+        assertEquals("updated", score.call("get", BigInteger.valueOf(30)));
+        assertArrayEquals(keys(30, 10, 20), all());
+
+        // removal does not reorder the remaining keys
+        remove(10);
+        assertArrayEquals(keys(30, 20), all());
+        remove(30, 20);
+        assertArrayEquals(keys(), all());
+        assertEquals(0, score.call("length"));
+        assertFalse((boolean) score.call("contains", BigInteger.valueOf(30)));
+        assertNull(score.call("get", BigInteger.valueOf(30)));
+
+        // a removed key is appended to the end when added again
+        set(1, 2, 3);
+        remove(1);
+        set(1);
+        assertArrayEquals(keys(2, 3, 1), all());
+        assertEquals(BigInteger.valueOf(2), score.call("first"));
+        assertEquals(BigInteger.valueOf(1), score.call("last"));
+    }
+
+    @Test
+    void stableCursor() {
+        set(1, 2, 3, 4, 5, 6, 7, 8);
+        var first = page(0, 3);
+        assertArrayEquals(keys(1, 2, 3), (BigInteger[]) first.get("keys"));
+        long cursor = (long) first.get("cursor");
+
+        // removing the cursor key and a key already seen does not skip or repeat any entry
+        remove(3, 1);
+        var second = page(cursor, 3);
+        assertArrayEquals(keys(4, 5, 6), (BigInteger[]) second.get("keys"));
+        cursor = (long) second.get("cursor");
+
+        // a run of removed keys after the cursor, and a key added meanwhile
+        remove(6, 7, 8);
+        set(9);
+        var third = page(cursor, 3);
+        assertArrayEquals(keys(9), (BigInteger[]) third.get("keys"));
+        cursor = (long) third.get("cursor");
+
+        // the end of the map keeps the cursor
+        var last = page(cursor, 3);
+        assertArrayEquals(keys(), (BigInteger[]) last.get("keys"));
+        assertEquals(cursor, last.get("cursor"));
+        assertThrows(UserRevertedException.class, () -> page(-1, 3));
+        // a cursor which was never issued
+        assertThrows(UserRevertedException.class, () -> page(100, 3));
+    }
+
+    @Test
+    void cursorAfterChurn() {
+        set(1, 2, 3, 4);
+        long cursor = (long) page(0, 2).get("cursor");
+
+        // the cursor key and its neighbors on both sides are removed in different orders
+        remove(2, 1, 4, 3);
+        set(5, 6);
+        assertArrayEquals(keys(5, 6), (BigInteger[]) page(cursor, 10).get("keys"));
+
+        // the removed key was the last one, and keys are added after it
+        long tailCursor = (long) page(0, 10).get("cursor");
+        remove(6);
+        set(7);
+        assertArrayEquals(keys(7), (BigInteger[]) page(tailCursor, 10).get("keys"));
+
+        // the removed key was the only one
+        remove(5, 7);
+        set(8);
+        assertArrayEquals(keys(8), (BigInteger[]) page(tailCursor, 10).get("keys"));
+        assertArrayEquals(keys(8), (BigInteger[]) page(cursor, 10).get("keys"));
+    }
+
+    @Test
+    void clear() {
+        set(1, 2, 3);
+        long cursor = (long) page(0, 2).get("cursor");
+        score.invoke(owner, "clear");
+        assertEquals(0, score.call("length"));
+        assertArrayEquals(keys(), all());
+        assertFalse((boolean) score.call("contains", BigInteger.ONE));
+        set(4);
+        assertArrayEquals(keys(4), all());
+        // a cursor taken before the clear resumes from the keys added since
+        assertArrayEquals(keys(4), (BigInteger[]) page(cursor, 10).get("keys"));
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2021 ICONLOOP Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.iconloop.score.util;
+
+import com.iconloop.score.test.Account;
+import com.iconloop.score.test.Score;
+import com.iconloop.score.test.ServiceManager;
+import com.iconloop.score.test.TestBase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import score.UserRevertedException;
+import score.annotation.External;
+import score.annotation.Optional;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SortedIndexTest extends TestBase {
+    private static final ServiceManager sm = getServiceManager();
+    private static final Account owner = sm.createAccount();
+    private Score score;
+
+    public static class SortedIndexScore {
+        // the smallest order, so that the tests exercise splits at every level
+        private final SortedIndex index = new SortedIndex("index", 3);
+
+        private static BigInteger[] toArray(List<BigInteger> list) {
+            BigInteger[] array = new BigInteger[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = list.get(i);
+            }
+            return array;
+        }
+
+        @External
+        public void add(BigInteger[] _keys) {
+            for (BigInteger key : _keys) {
+                index.add(key);
+            }
+        }
+
+        @External
+        public void remove(BigInteger[] _keys) {
+            for (BigInteger key : _keys) {
+                index.remove(key);
+            }
+        }
+
+        @External(readonly=true)
+        public int size() {
+            return index.size();
+        }
+
+        @External(readonly=true)
+        public boolean contains(BigInteger _key) {
+            return index.contains(_key);
+        }
+
+        @External(readonly=true)
+        public BigInteger first() {
+            return index.first();
+        }
+
+        @External(readonly=true)
+        public BigInteger last() {
+            return index.last();
+        }
+
+        @External(readonly=true)
+        public BigInteger higher(BigInteger _key) {
+            return index.higher(_key);
+        }
+
+        @External(readonly=true)
+        public BigInteger lower(BigInteger _key) {
+            return index.lower(_key);
+        }
+
+        @External(readonly=true)
+        public BigInteger[] ascending(int _limit, @Optional BigInteger _from, @Optional BigInteger _to) {
+            return toArray(index.ascending(_from, _to, _limit));
+        }
+
+        @External(readonly=true)
+        public BigInteger[] descending(int _limit, @Optional BigInteger _from, @Optional BigInteger _to) {
+            return toArray(index.descending(_from, _to, _limit));
+        }
+    }
+
+    @BeforeEach
+    void setup() throws Exception {
+        score = sm.deploy(owner, SortedIndexScore.class);
+    }
+
+    private static BigInteger[] keys(int... values) {
+        BigInteger[] result = new BigInteger[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = BigInteger.valueOf(values[i]);
+        }
+        return result;
+    }
+
+    private BigInteger[] all() {
+        return (BigInteger[]) score.call("ascending", 1000, null, null);
+    }
+
+    @Test
+    void empty() {
+        assertEquals(0, score.call("size"));
+        assertNull(score.call("first"));
+        assertNull(score.call("last"));
+        assertArrayEquals(keys(), all());
+        assertArrayEquals(keys(), (BigInteger[]) score.call("descending", 10, null, null));
+        assertFalse((boolean) score.call("contains", BigInteger.ONE));
+    }
+
+    @Test
+    void ranges() {
+        score.invoke(owner, "add", (Object) keys(50, 10, 40, 20, 30, 60, 70, 80, 90, 100, 10));
+        assertEquals(10, score.call("size"));
+        assertArrayEquals(keys(10, 20, 30, 40, 50, 60, 70, 80, 90, 100), all());
+        assertEquals(BigInteger.valueOf(10), score.call("first"));
+        assertEquals(BigInteger.valueOf(100), score.call("last"));
+
+        assertArrayEquals(keys(30, 40, 50), (BigInteger[]) score.call("ascending", 10, keys(25)[0], keys(60)[0]));
+        assertArrayEquals(keys(30, 40), (BigInteger[]) score.call("ascending", 2, keys(30)[0], null));
+        // top-N and descending pages
+        assertArrayEquals(keys(100, 90, 80), (BigInteger[]) score.call("descending", 3, null, null));
+        assertArrayEquals(keys(70, 60), (BigInteger[]) score.call("descending", 2, null, keys(80)[0]));
+        assertArrayEquals(keys(30, 20), (BigInteger[]) score.call("descending", 10, keys(15)[0], keys(31)[0]));
+
+        assertEquals(BigInteger.valueOf(60), score.call("higher", BigInteger.valueOf(50)));
+        assertEquals(BigInteger.valueOf(40), score.call("lower", BigInteger.valueOf(50)));
+        assertNull(score.call("higher", BigInteger.valueOf(100)));
+        assertNull(score.call("lower", BigInteger.valueOf(10)));
+        assertThrows(UserRevertedException.class, () -> score.call("ascending", -1, null, null));
+    }
+
+    @Test
+    void randomOperations() {
+        Random random = new Random(20211016);
+        TreeSet<BigInteger> expected = new TreeSet<>();
+        for (int round = 0; round < 30; round++) {
+            BigInteger[] added = new BigInteger[20];
+            for (int i = 0; i < added.length; i++) {
+                added[i] = BigInteger.valueOf(random.nextInt(200));
+                expected.add(added[i]);
+            }
+            score.invoke(owner, "add", (Object) added);
+            BigInteger[] removed = new BigInteger[15];
+            for (int i = 0; i < removed.length; i++) {
+                removed[i] = BigInteger.valueOf(random.nextInt(200));
+                expected.remove(removed[i]);
+            }
+            score.invoke(owner, "remove", (Object) removed);
+
+            assertEquals(expected.size(), score.call("size"));
+            assertArrayEquals(expected.toArray(new BigInteger[0]), all());
+            assertArrayEquals(expected.descendingSet().toArray(new BigInteger[0]),
+                    (BigInteger[]) score.call("descending", 1000, null, null));
+            BigInteger probe = BigInteger.valueOf(random.nextInt(200));
+            assertEquals(expected.contains(probe), score.call("contains", probe));
+            assertEquals(expected.higher(probe), score.call("higher", probe));
+            assertEquals(expected.lower(probe), score.call("lower", probe));
+        }
+
+        // removing everything leaves an empty set
+        score.invoke(owner, "remove", (Object) expected.toArray(new BigInteger[0]));
+        assertEquals(0, score.call("size"));
+        assertArrayEquals(keys(), all());
+        score.invoke(owner, "add", (Object) keys(7));
+        assertTrue((boolean) score.call("contains", BigInteger.valueOf(7)));
+    }
+}